@@ -13,6 +13,8 @@ plugins {
 	id("org.jetbrains.changelog") version "2.0.0"
 	// Gradle Qodana Plugin
 	id("org.jetbrains.qodana") version "0.1.13"
+	// JMH benchmarks in src/jmh
+	id("me.champeau.jmh") version "0.7.1"
 }
 
 group = properties("pluginGroup").get()
@@ -25,6 +27,31 @@ repositories {
 
 dependencies {
 	implementation("org.yaml:snakeyaml:2.0")
+	testImplementation(platform("org.junit:junit-bom:5.9.3"))
+	testImplementation("org.junit.jupiter:junit-jupiter")
+	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+	jmhImplementation("org.openjdk.jol:jol-core:0.17")
+}
+
+// Schema snapshots bundled in the plugin jar from src/main/resources/schemas, served until the background refresh found a newer version [SchemaSnapshotStore]
+// The build never goes to the network and bundles whatever is in that directory. Create or refresh the snapshots manually and commit the result:
+// ./gradlew refreshSchemaSnapshots
+val schemaNames = listOf("action", "funding", "workflow", "discussion", "issue-forms", "issue-config", "workflow-template-properties")
+val refreshSchemaSnapshots by tasks.registering {
+	group = "other"
+	description = "Downloads the schemastore.org snapshots of the GitHub schemas into src/main/resources/schemas"
+	val snapshotDir = layout.projectDirectory.dir("src/main/resources/schemas")
+	doLast {
+		snapshotDir.asFile.mkdirs()
+		schemaNames.forEach { name ->
+			val target = snapshotDir.file("github-$name.json").asFile
+			val tmp = File(target.parentFile, "${target.name}.tmp")
+			// Fails the task instead of leaving a partial snapshot behind
+			java.net.URI("https://json.schemastore.org/github-$name").toURL().openStream().use { input -> tmp.outputStream().use { input.copyTo(it) } }
+			java.nio.file.Files.move(tmp.toPath(), target.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING)
+			logger.lifecycle("Schema snapshot [$name] updated")
+		}
+	}
 }
 
 // Set the JVM language level used to build the project. Use Java 11 for 2020.3+, and Java 17 for 2022.2+.
@@ -43,6 +70,34 @@ intellij {
 	plugins.set(properties("platformPlugins").map { it.split(',').map(String::trim).filter(String::isNotEmpty) })
 }
 
+// Configure JMH - read more: https://github.com/melix/jmh-gradle-plugin
+// Run with `./gradlew jmh`, a subset with e.g. `./gradlew jmh -PjmhIncludes=WorkflowParseBenchmark`
+jmh {
+	jmhVersion.set("1.36")
+	includes.set(properties("jmhIncludes").map { listOf(it) }.orElse(listOf()))
+	fork.set(1)
+	warmupIterations.set(3)
+	iterations.set(5)
+	// gc.alloc.rate.norm = allocated bytes per operation
+	profilers.set(listOf("gc"))
+	resultFormat.set("JSON")
+	resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+	// Baselines use the old object tree LegacyYamlNode from src/test
+	includeTests.set(true)
+}
+// Retained size of the parsed models (YamlTree vs LegacyYamlNode) with JOL, run with `./gradlew treeFootprint`
+val treeFootprint by tasks.registering(JavaExec::class) {
+	group = "benchmark"
+	description = "Prints the retained size of the parsed workflow models of the JMH corpus"
+	classpath = sourceSets["jmh"].runtimeClasspath
+	mainClass.set("com.github.yunabraska.githubworkflow.completion.TreeFootprint")
+	jvmArgs("-Djdk.attach.allowAttachSelf=true")
+}
+// Benchmarks run outside the IDE, but the plugin classes reference the IntelliJ Platform
+configurations.named("jmhImplementation") {
+	extendsFrom(configurations.compileOnly.get())
+}
+
 // Configure Gradle Changelog Plugin - read more: https://github.com/JetBrains/gradle-changelog-plugin
 changelog {
 	groups.empty()
@@ -58,6 +113,10 @@ qodana {
 }
 
 tasks {
+	test {
+		useJUnitPlatform()
+	}
+
 	wrapper {
 		gradleVersion = properties("gradleVersion").get()
 	}
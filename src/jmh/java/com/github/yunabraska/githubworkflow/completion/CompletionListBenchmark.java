@@ -0,0 +1,79 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import com.intellij.codeInsight.completion.PlainPrefixMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_JOBS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_STEPS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_USES;
+
+/**
+ * Building the completion lists for `env.`, `steps.x.outputs.`, `needs.` and `needs.x.outputs.` with the caret in the last step of the job of
+ * {@link WorkflowCorpus#stepWithOutputs()}. Each invocation uses a new {@link CompletionContext} on the parsed model, like a completion invocation on an unchanged file.
+ * <p>
+ * The benchmarked job and step have no `uses`, so {@link GitHubAction} and {@link WorkflowCallGraph} (which need the IDE) are never reached.
+ * <p>
+ * The model is parsed from text and has no project, so every symbol is found by scanning the tree, the fallback for files the index can't answer.
+ * In the editor the model comes from the PSI and the symbols from the {@code WorkflowSymbolIndex}, that completion path isn't covered by these numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompletionListBenchmark {
+
+    @Param({"BUILD", "RELEASE", "SMALL", "MEDIUM", "LARGE"})
+    public WorkflowCorpus corpus;
+
+    private WorkflowFile file;
+
+    @Setup
+    public void setup() {
+        final WorkflowFile parsed = WorkflowFile.workflowFileOf(corpus.text());
+        final YamlNode job = parsed.yaml().getChild(FIELD_JOBS).map(YamlNode::children).orElse(List.of()).stream()
+                .filter(candidate -> parsed.getStepById(candidate.name(), corpus.stepWithOutputs()).isPresent())
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new IllegalStateException("Missing step [" + corpus.stepWithOutputs() + "] in [" + corpus + "]"));
+        final YamlNode step = parsed.getStepById(job.name(), corpus.stepWithOutputs()).orElseThrow();
+        if (step.hasChild(FIELD_USES) || parsed.getJobById(corpus.jobWithOutputs()).map(node -> node.hasChild(FIELD_USES)).orElse(true)) {
+            throw new IllegalStateException("Benchmarked job and step of [" + corpus + "] must exist without `uses`");
+        }
+        final List<YamlNode> steps = job.getChild(FIELD_STEPS).map(YamlNode::children).orElseThrow();
+        file = parsed.atOffset(steps.get(steps.size() - 1).startOffset());
+    }
+
+    @Benchmark
+    public List<CompletionItem> listEnvs() {
+        return CompletionItem.listEnvs(new CompletionContext(() -> file));
+    }
+
+    @Benchmark
+    public List<CompletionItem> listStepOutputs() {
+        return CompletionItem.listStepOutputs(corpus.stepWithOutputs(), new CompletionContext(() -> file));
+    }
+
+    @Benchmark
+    public List<CompletionItem> listNeeds() {
+        return CompletionItem.listNeeds(new CompletionContext(() -> file));
+    }
+
+    @Benchmark
+    public List<CompletionItem> listJobOutputs() {
+        return CompletionItem.listJobOutputs(corpus.jobWithOutputs(), new CompletionContext(() -> file));
+    }
+
+    @Benchmark
+    public List<CompletionItem> filterEnvs() {
+        //PLAIN MATCHER: THE CAMEL HUMP MATCHER READS THE CODE INSIGHT SETTINGS OF THE APPLICATION
+        return CandidateIndex.filter(listEnvs(), new PlainPrefixMatcher("GITHUB_R"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_RUN;
+
+/**
+ * {@code GITHUB_OUTPUT} / {@code GITHUB_ENV} scanning of all `run` scripts of a file.
+ * {@link #scanCached()} is what a completion pays for unchanged scripts, {@link #scanUncached()} makes every script unique so the scanner runs every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RunScriptScannerBenchmark {
+
+    @Param({"BUILD", "RELEASE", "SMALL", "MEDIUM", "LARGE"})
+    public WorkflowCorpus corpus;
+
+    private List<String> scripts;
+    private long invocation;
+
+    @Setup
+    public void setup() {
+        scripts = WorkflowFile.workflowFileOf(corpus.text()).yaml()
+                .getAllChildren(node -> node.hasName(FIELD_RUN) && node.value() != null).stream()
+                .map(YamlNode::value)
+                .toList();
+    }
+
+    @Benchmark
+    public int scanCached() {
+        int result = 0;
+        for (String script : scripts) {
+            result += GitHubWorkflowUtils.toGithubOutputs(script).size() + GitHubWorkflowUtils.toGithubEnvs(script).size();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int scanUncached() {
+        final String suffix = "\n# " + invocation++;
+        int result = 0;
+        for (String script : scripts) {
+            final RunScriptScanner.Assignments assignments = RunScriptScanner.scan(script + suffix);
+            result += assignments.outputs().size() + assignments.envs().size();
+        }
+        return result;
+    }
+}
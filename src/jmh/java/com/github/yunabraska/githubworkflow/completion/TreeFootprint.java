@@ -0,0 +1,32 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Locale;
+
+/**
+ * Retained size of the parsed model per corpus file, which the allocation rate of the benchmarks doesn't show.
+ * Compares the {@link YamlTree} of {@link WorkflowFile#workflowFileOf(String)} with the object tree of {@link LegacyYamlNode}.
+ * Run with {@code ./gradlew treeFootprint}.
+ */
+public final class TreeFootprint {
+
+    private TreeFootprint() {
+    }
+
+    public static void main(final String[] args) {
+        System.out.printf(Locale.ROOT, "%-8s %8s %8s %14s %14s%n", "corpus", "lines", "nodes", "YamlTree [B]", "legacy [B]");
+        for (WorkflowCorpus corpus : WorkflowCorpus.values()) {
+            final String text = corpus.text();
+            final YamlNode tree = WorkflowFile.workflowFileOf(text).yaml();
+            final LegacyYamlNode legacy = LegacyYamlNode.legacyYamlNodeOf(text);
+            System.out.printf(Locale.ROOT, "%-8s %8d %8d %14d %14d%n",
+                    corpus,
+                    text.lines().count(),
+                    tree.nodeCount(),
+                    GraphLayout.parseInstance(tree).totalSize(),
+                    GraphLayout.parseInstance(legacy).totalSize()
+            );
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Workflow files the benchmarks run on, from {@code src/jmh/resources/workflows}.
+ * {@code build} and {@code release} are copies of the workflows of this repository, {@code small} and {@code medium} are real-world style workflows,
+ * {@code large} replicates the jobs of {@code medium} with renamed job ids until the file has about 3,000 lines.
+ */
+public enum WorkflowCorpus {
+
+    BUILD("build", "properties"),
+    RELEASE("release", "properties"),
+    SMALL("build", "version"),
+    MEDIUM("docker", "tag"),
+    LARGE("docker_0", "tag");
+
+    private static final int LARGE_LINES = 3000;
+    private static final String JOB_IDS = "\\b(prepare|test|frontend|docker|deploy|release)\\b";
+
+    private final String jobWithOutputs;
+    private final String stepWithOutputs;
+    private String text;
+
+    /**
+     * @param jobWithOutputs  job for `needs.<id>.outputs.`, without `uses`
+     * @param stepWithOutputs step which writes to {@code GITHUB_OUTPUT}, without `uses`. The caret is in the last step of its job
+     */
+    WorkflowCorpus(final String jobWithOutputs, final String stepWithOutputs) {
+        this.jobWithOutputs = jobWithOutputs;
+        this.stepWithOutputs = stepWithOutputs;
+    }
+
+    public synchronized String text() {
+        if (text == null) {
+            text = this == LARGE ? replicate(MEDIUM.text()) : load(name().toLowerCase() + ".yml");
+        }
+        return text;
+    }
+
+    public String jobWithOutputs() {
+        return jobWithOutputs;
+    }
+
+    public String stepWithOutputs() {
+        return stepWithOutputs;
+    }
+
+    private static String replicate(final String medium) {
+        final int jobsStart = medium.indexOf("\njobs:\n") + "\njobs:\n".length();
+        final String jobs = medium.substring(jobsStart);
+        final StringBuilder result = new StringBuilder(medium.substring(0, jobsStart));
+        for (int copy = 0; result.chars().filter(c -> c == '\n').count() < LARGE_LINES; copy++) {
+            result.append(jobs.replaceAll(JOB_IDS, "$1_" + copy)).append('\n');
+        }
+        return result.toString();
+    }
+
+    private static String load(final String name) {
+        try (final InputStream stream = WorkflowCorpus.class.getResourceAsStream("/workflows/" + name)) {
+            if (stream == null) {
+                throw new IllegalStateException("Missing corpus file [" + name + "]");
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_JOBS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_RUN;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_STEPS;
+
+/**
+ * Queries on an already parsed model: job and step lookup, child lookup by name and the recursive search for `run` scripts.
+ * The {@code legacy*} methods run the same queries on the object tree of {@link LegacyYamlNode} as baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WorkflowModelBenchmark {
+
+    @Param({"BUILD", "RELEASE", "SMALL", "MEDIUM", "LARGE"})
+    public WorkflowCorpus corpus;
+
+    private WorkflowFile file;
+    private YamlNode jobs;
+    private LegacyYamlNode legacy;
+    private LegacyYamlNode legacyJobs;
+
+    @Setup
+    public void setup() {
+        file = WorkflowFile.workflowFileOf(corpus.text());
+        jobs = file.yaml().getChild(FIELD_JOBS).orElseThrow();
+        legacy = LegacyYamlNode.legacyYamlNodeOf(YamlLoader.load(corpus.text()));
+        legacyJobs = legacy.getChild(FIELD_JOBS).orElseThrow();
+    }
+
+    @Benchmark
+    public Optional<YamlNode> getJobById() {
+        return file.getJobById(corpus.jobWithOutputs());
+    }
+
+    @Benchmark
+    public Optional<YamlNode> getStepById() {
+        return file.getStepById(corpus.jobWithOutputs(), corpus.stepWithOutputs());
+    }
+
+    @Benchmark
+    public boolean hasChild() {
+        return jobs.hasChild(corpus.jobWithOutputs());
+    }
+
+    @Benchmark
+    public List<YamlNode> getAllRunScripts() {
+        return file.yaml().getAllChildren(node -> node.hasName(FIELD_RUN));
+    }
+
+    @Benchmark
+    public Optional<LegacyYamlNode> legacyGetStepById() {
+        return legacyJobs.getChild(corpus.jobWithOutputs())
+                .flatMap(job -> job.getChild(FIELD_STEPS))
+                .flatMap(steps -> steps.children().stream().filter(step -> step.getChild("id").map(LegacyYamlNode::value).filter(corpus.stepWithOutputs()::equals).isPresent()).findFirst());
+    }
+
+    @Benchmark
+    public boolean legacyHasChild() {
+        return legacyJobs.getChild(corpus.jobWithOutputs()).isPresent();
+    }
+
+    @Benchmark
+    public List<LegacyYamlNode> legacyGetAllRunScripts() {
+        return legacy.getAllChildren(node -> node.hasName(FIELD_RUN));
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time and, with the gc profiler, allocation per parse ({@code gc.alloc.rate.norm}).
+ * Baselines: {@link #newYamlPerParse()} is the SnakeYAML object graph with a new {@link Yaml} per parse as before the shared {@link YamlLoader},
+ * {@link #loadMap()} the same graph with the shared loader and {@link #legacyTree()} the object tree the event based {@link YamlNodeBuilder} replaced.
+ * <p>
+ * Only the text path is measured, which parses downloaded actions and reusable workflows ({@link GitHubAction}, {@link WorkflowCallGraph}).
+ * Workflows open in the editor are built from the PSI ({@code YamlNode.yamlNodeOf(YAMLFile)}), which needs the IDE and isn't covered here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorkflowParseBenchmark {
+
+    @Param({"BUILD", "RELEASE", "SMALL", "MEDIUM", "LARGE"})
+    public WorkflowCorpus corpus;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        text = corpus.text();
+    }
+
+    @Benchmark
+    public WorkflowFile workflowFileOf() {
+        return WorkflowFile.workflowFileOf(text);
+    }
+
+    @Benchmark
+    public Object newYamlPerParse() {
+        return new Yaml().load(text);
+    }
+
+    @Benchmark
+    public LegacyYamlNode legacyTree() {
+        return LegacyYamlNode.legacyYamlNodeOf(text);
+    }
+
+    @Benchmark
+    public Object loadMap() {
+        return YamlLoader.load(new StringReader(text));
+    }
+
+    @Benchmark
+    public int nodeCount() {
+        return WorkflowFile.workflowFileOf(text).yaml().nodeCount();
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.yunabraska.githubworkflow.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.github.api.GithubApiRequest;
+import org.jetbrains.plugins.github.api.GithubApiResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <a href="https://docs.github.com/en/rest/commits/commits?apiVersion=2022-11-28#get-a-commit">get a commit</a>
+ * We use this to resolve a tag or branch to its commit SHA without downloading any content
+ */
+public class CommitShaRequest extends GithubApiRequest.Get<String> {
+
+    public CommitShaRequest(@NotNull String url) {
+        super(url, "application/vnd.github.sha");
+    }
+
+    public static @NotNull CommitShaRequest request(
+            @NotNull String owner,
+            @NotNull String repo,
+            @NotNull String ref
+    ) {
+        // https://api.github.com/repos/OWNER/REPO/commits/REF
+        return new CommitShaRequest(String.format(
+                "https://api.github.com/repos/%s/%s/commits/%s",
+                owner,
+                repo,
+                ref
+        ));
+    }
+
+    @Override
+    public String extractResult(@NotNull GithubApiResponse githubApiResponse) throws IOException {
+        return githubApiResponse.handleBody(body -> new String(body.readAllBytes(), StandardCharsets.UTF_8).trim());
+    }
+}
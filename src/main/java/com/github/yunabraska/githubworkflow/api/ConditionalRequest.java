@@ -0,0 +1,79 @@
+package com.github.yunabraska.githubworkflow.api;
+
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
+import com.intellij.openapi.application.ApplicationInfo;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.io.HttpRequests;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+
+/**
+ * GET which sends the validators (If-None-Match / If-Modified-Since) of the cached content.
+ * A 304 answer costs no body and, for the GitHub API, no rate limit.
+ */
+public class ConditionalRequest {
+
+    private static final Logger LOG = Logger.getInstance(ConditionalRequest.class);
+
+    private ConditionalRequest() {
+    }
+
+    /**
+     * @param accept        accept header, null for default
+     * @param authorization token for the Authorization header, null for anonymous requests
+     * @param etag          ETag of the cached content, null if unknown
+     * @param lastModified  Last-Modified of the cached content, null if unknown
+     */
+    public static ConditionalResponse get(final String url, final String accept, final String authorization, final String etag, final String lastModified) throws IOException {
+        final ApplicationInfo applicationInfo = ApplicationInfo.getInstance();
+        final long start = PluginMetrics.start();
+        try {
+            return request(url, accept, authorization, etag, lastModified, applicationInfo);
+        } finally {
+            PluginMetrics.record(PluginMetrics.Timer.NETWORK_FETCH, start);
+        }
+    }
+
+    private static ConditionalResponse request(final String url, final String accept, final String authorization, final String etag, final String lastModified, final ApplicationInfo applicationInfo) throws IOException {
+        return HttpRequests
+                .request(url)
+                .accept(accept)
+                .gzip(true)
+                .readTimeout(5000)
+                .connectTimeout(5000)
+                .throwStatusCodeException(false)
+                .userAgent(applicationInfo.getBuild().getProductCode() + "/" + applicationInfo.getFullVersion())
+                .tuner(connection -> {
+                    connection.setRequestProperty("Client-Name", "GitHub Workflow Plugin");
+                    setIfPresent(connection, "Authorization", authorization == null ? null : "Bearer " + authorization);
+                    setIfPresent(connection, "If-None-Match", etag);
+                    setIfPresent(connection, "If-Modified-Since", lastModified);
+                })
+                .connect(request -> {
+                    final URLConnection connection = request.getConnection();
+                    final int status = connection instanceof HttpURLConnection httpConnection ? httpConnection.getResponseCode() : HttpURLConnection.HTTP_OK;
+                    if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        LOG.debug("Not modified [" + url + "]");
+                        PluginMetrics.increment(PluginMetrics.Counter.NOT_MODIFIED);
+                        return ConditionalResponse.notModified(etag, lastModified);
+                    } else if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                        throw new HttpRequests.HttpStatusException("Request failed with status [" + status + "]", status, url);
+                    }
+                    LOG.debug("Download [" + url + "]");
+                    PluginMetrics.increment(PluginMetrics.Counter.DOWNLOAD);
+                    return ConditionalResponse.ok(
+                            request.readString(),
+                            connection.getHeaderField("ETag"),
+                            connection.getHeaderField("Last-Modified")
+                    );
+                });
+    }
+
+    private static void setIfPresent(final URLConnection connection, final String header, final String value) {
+        if (value != null && !value.isEmpty()) {
+            connection.setRequestProperty(header, value);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.yunabraska.githubworkflow.api;
+
+/**
+ * Response of a conditional GET. {@code notModified} means the cached content is still valid and {@code body} is null.
+ *
+ * @param etag         value of the ETag header, null if absent
+ * @param lastModified value of the Last-Modified header, null if absent
+ */
+public record ConditionalResponse(boolean notModified, String body, String etag, String lastModified) {
+
+    public static ConditionalResponse notModified(final String etag, final String lastModified) {
+        return new ConditionalResponse(true, null, etag, lastModified);
+    }
+
+    public static ConditionalResponse ok(final String body, final String etag, final String lastModified) {
+        return new ConditionalResponse(false, body, etag, lastModified);
+    }
+}
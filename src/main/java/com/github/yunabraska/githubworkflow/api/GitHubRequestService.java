@@ -4,10 +4,12 @@ import java.io.IOException;
 import java.util.Objects;
 import java.util.Optional;
 
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
 import com.github.yunabraska.githubworkflow.util.ToolUtils;
 import com.intellij.notification.NotificationGroupManager;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.io.HttpRequests;
 import org.jetbrains.plugins.github.api.GithubApiRequest;
 import org.jetbrains.plugins.github.api.GithubApiRequestExecutor;
 import org.jetbrains.plugins.github.authentication.accounts.GithubAccount;
@@ -19,9 +21,17 @@ public class GitHubRequestService {
         try {
             Optional<GithubAccount> gitHubAccount = ToolUtils.getGitHubAccount();
             if (gitHubAccount.isPresent()) {
-                return GithubApiRequestExecutor.Factory.Companion.getInstance().create(
+                final GithubApiRequestExecutor executor = GithubApiRequestExecutor.Factory.Companion.getInstance().create(
                     Objects.requireNonNull(GHCompatibilityUtil.getOrRequestToken(gitHubAccount.get(), project))
-                ).execute(request);
+                );
+                final long start = PluginMetrics.start();
+                try {
+                    final T result = executor.execute(request);
+                    PluginMetrics.increment(PluginMetrics.Counter.DOWNLOAD);
+                    return result;
+                } finally {
+                    PluginMetrics.record(PluginMetrics.Timer.NETWORK_FETCH, start);
+                }
             }
 
             if (project.isDisposed()) {
@@ -31,10 +41,92 @@ public class GitHubRequestService {
             // ignore
         }
 
+        notifyMissingAccount(project);
+        return null;
+    }
+
+    /**
+     * Conditional GET with the token of the GitHub account, see {@link ConditionalRequest}.
+     * The GithubApiRequestExecutor can't be used here as it doesn't expose the 304 status.
+     *
+     * @return response or null without GitHub account
+     */
+    public ConditionalResponse requestConditional(Project project, String url, String accept, String etag, String lastModified) throws IOException {
+        try {
+            Optional<GithubAccount> gitHubAccount = ToolUtils.getGitHubAccount();
+            if (gitHubAccount.isPresent()) {
+                return ConditionalRequest.get(
+                    url,
+                    accept,
+                    Objects.requireNonNull(GHCompatibilityUtil.getOrRequestToken(gitHubAccount.get(), project)),
+                    etag,
+                    lastModified
+                );
+            }
+
+            if (project.isDisposed()) {
+                return null;
+            }
+        } catch (NullPointerException e) {
+            // ignore
+        }
+
+        notifyMissingAccount(project);
+        return null;
+    }
+
+    /**
+     * POST of a GraphQL query with the token of the GitHub account.
+     *
+     * @return response body or null without GitHub account
+     */
+    public String requestGraphQl(Project project, String url, String body) throws IOException {
+        try {
+            Optional<GithubAccount> gitHubAccount = ToolUtils.getGitHubAccount();
+            if (gitHubAccount.isPresent()) {
+                final String token = Objects.requireNonNull(GHCompatibilityUtil.getOrRequestToken(gitHubAccount.get(), project));
+                final long start = PluginMetrics.start();
+                try {
+                    final String result = postGraphQl(url, body, token);
+                    //ONE DOWNLOAD PER BATCH OF THE GraphQlBatchResolver, NOT PER FILE
+                    PluginMetrics.increment(PluginMetrics.Counter.DOWNLOAD);
+                    return result;
+                } finally {
+                    PluginMetrics.record(PluginMetrics.Timer.NETWORK_FETCH, start);
+                }
+            }
+
+            if (project.isDisposed()) {
+                return null;
+            }
+        } catch (NullPointerException e) {
+            // ignore
+        }
+
+        notifyMissingAccount(project);
+        return null;
+    }
+
+    private static String postGraphQl(final String url, final String body, final String token) throws IOException {
+        return HttpRequests
+            .post(url, "application/json")
+            .gzip(true)
+            .readTimeout(10000)
+            .connectTimeout(5000)
+            .tuner(connection -> {
+                connection.setRequestProperty("Authorization", "Bearer " + token);
+                connection.setRequestProperty("Client-Name", "GitHub Workflow Plugin");
+            })
+            .connect(request -> {
+                request.write(body);
+                return request.readString();
+            });
+    }
+
+    private static void notifyMissingAccount(Project project) {
         NotificationGroupManager.getInstance()
             .getNotificationGroup("GitHub Token NotExist")
             .createNotification("No GitHub account found", NotificationType.ERROR)
             .notify(project);
-        return null;
     }
 }
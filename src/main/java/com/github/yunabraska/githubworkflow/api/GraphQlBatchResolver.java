@@ -0,0 +1,241 @@
+package com.github.yunabraska.githubworkflow.api;
+
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects file lookups for a short window and fetches them with one GraphQL query of aliased
+ * {@code repository { object(expression: "ref:path") { ... on Blob { text } } }} fields.
+ * The same query also resolves the commit SHA of each ref.
+ * Lookups of different projects are sent in separate requests, each with the credentials of its own project.
+ * <p>
+ * A repository the query reports as {@code NOT_FOUND} completes like a missing file, any other error (e.g. rate limits) completes
+ * only the affected lookups exceptionally, so the caller can fall back to the REST API.
+ * <p>
+ * The endpoint can be changed with {@code -Dgithub.workflow.graphql.url}, e.g. for GitHub Enterprise or a local stand-in.
+ */
+public final class GraphQlBatchResolver {
+
+    private static final Logger LOG = Logger.getInstance(GraphQlBatchResolver.class);
+    private static final String ENDPOINT = System.getProperty("github.workflow.graphql.url", "https://api.github.com/graphql");
+    private static final long WINDOW_MS = Long.getLong("github.workflow.graphql.window", 50L);
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("github.workflow.graphql.batch", 50);
+
+    private final List<Pending> pending = new ArrayList<>();
+    private final Transport transport;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * @param text      content of the file, null if the repository, ref or file doesn't exist
+     * @param commitSha commit SHA of the ref, null if unknown
+     */
+    public record Blob(String text, String commitSha) {
+    }
+
+    /**
+     * Sends the query body, e.g. {@link GitHubRequestService#requestGraphQl}.
+     */
+    @FunctionalInterface
+    interface Transport {
+        /**
+         * @return response body or null without GitHub account
+         */
+        String post(Project project, String body) throws IOException;
+    }
+
+    private record Pending(Project project, String owner, String repo, String path, String ref, CompletableFuture<Blob> future) {
+    }
+
+    private static final class Holder {
+        private static final GraphQlBatchResolver INSTANCE = new GraphQlBatchResolver(
+                (project, body) -> ApplicationManager.getApplication().getService(GitHubRequestService.class).requestGraphQl(project, ENDPOINT, body),
+                AppExecutorUtil.createBoundedApplicationPoolExecutor("GitHub GraphQL Batch", 2),
+                AppExecutorUtil.getAppScheduledExecutorService()
+        );
+
+        static {
+            //ONLY THE SHARED INSTANCE IS REPORTED, INSTANCES OF TESTS DON'T REPLACE ITS GAUGES
+            PluginMetrics.gauge("graphql.batches", INSTANCE::batches);
+            PluginMetrics.gauge("graphql.files", INSTANCE::files);
+        }
+    }
+
+    GraphQlBatchResolver(final Transport transport, final Executor executor, final ScheduledExecutorService scheduler) {
+        this.transport = transport;
+        this.executor = executor;
+        this.scheduler = scheduler;
+    }
+
+    public static GraphQlBatchResolver getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * @return future of the file, completes with null without GitHub account
+     */
+    public CompletableFuture<Blob> fetch(final Project project, final String owner, final String repo, final String path, final String ref) {
+        final CompletableFuture<Blob> result = new CompletableFuture<>();
+        synchronized (pending) {
+            pending.add(new Pending(project, owner, repo, path, ref == null || ref.isEmpty() ? "HEAD" : ref, result));
+            if (pending.size() >= MAX_BATCH_SIZE) {
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                scheduled = null;
+                flush();
+            } else if (scheduled == null) {
+                scheduled = scheduler.schedule(this::flushScheduled, WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        return result;
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    public long files() {
+        return files.sum();
+    }
+
+    private void flushScheduled() {
+        synchronized (pending) {
+            scheduled = null;
+            flush();
+        }
+    }
+
+    private void flush() {
+        //ONE REQUEST PER PROJECT: THE TOKEN IS REQUESTED FOR THE PROJECT OF THE LOOKUP
+        final Map<Project, List<Pending>> byProject = new LinkedHashMap<>();
+        pending.forEach(item -> byProject.computeIfAbsent(item.project(), project -> new ArrayList<>()).add(item));
+        pending.clear();
+        byProject.values().forEach(items -> {
+            for (int start = 0; start < items.size(); start += MAX_BATCH_SIZE) {
+                final List<Pending> batch = new ArrayList<>(items.subList(start, Math.min(items.size(), start + MAX_BATCH_SIZE)));
+                try {
+                    executor.execute(() -> send(batch));
+                } catch (RuntimeException e) {
+                    //REJECTED
+                    batch.forEach(item -> item.future().completeExceptionally(e));
+                }
+            }
+        });
+    }
+
+    private void send(final List<Pending> batch) {
+        batches.increment();
+        files.add(batch.size());
+        try {
+            final JsonObject body = new JsonObject();
+            body.addProperty("query", queryOf(batch));
+            final String response = transport.post(batch.get(0).project(), body.toString());
+            if (response == null) {
+                batch.forEach(item -> item.future().complete(null));
+                return;
+            }
+            final JsonObject json = JsonParser.parseString(response).getAsJsonObject();
+            final JsonElement data = json.get("data");
+            if (data == null || !data.isJsonObject()) {
+                throw new IOException("No data, errors [" + json.get("errors") + "]");
+            }
+            final Map<String, String> errors = errorsByAlias(json.get("errors"));
+            for (int i = 0; i < batch.size(); i++) {
+                final JsonElement repository = data.getAsJsonObject().get(alias(i));
+                final String error = errors.get(alias(i));
+                if (error == null || (repository != null && repository.isJsonObject())) {
+                    batch.get(i).future().complete(new Blob(stringOf(repository, "file", "text"), stringOf(repository, "commit", "oid")));
+                } else if (error.equals("NOT_FOUND")) {
+                    batch.get(i).future().complete(new Blob(null, null));
+                } else {
+                    batch.get(i).future().completeExceptionally(new IOException("GraphQL error [" + error + "]"));
+                }
+            }
+            LOG.debug("Fetched [" + batch.size() + "] files with one GraphQL request");
+        } catch (Exception e) {
+            LOG.warn("GraphQL request failed for [" + batch.size() + "] files message [" + e.getMessage() + "]");
+            batch.forEach(item -> item.future().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * @return error type (or message) by the alias of the first path element, e.g. "a3" -> "NOT_FOUND"
+     */
+    private static Map<String, String> errorsByAlias(final JsonElement errors) {
+        final Map<String, String> result = new HashMap<>();
+        if (errors == null || !errors.isJsonArray()) {
+            return result;
+        }
+        for (JsonElement error : errors.getAsJsonArray()) {
+            if (!error.isJsonObject()) {
+                continue;
+            }
+            final JsonObject object = error.getAsJsonObject();
+            final JsonElement path = object.get("path");
+            if (path == null || !path.isJsonArray() || path.getAsJsonArray().isEmpty()) {
+                continue;
+            }
+            final JsonElement type = object.get("type");
+            final JsonElement message = object.get("message");
+            result.putIfAbsent(path.getAsJsonArray().get(0).getAsString(), type != null && !type.isJsonNull() ? type.getAsString() : String.valueOf(message));
+        }
+        return result;
+    }
+
+    private static String queryOf(final List<Pending> batch) {
+        final StringBuilder query = new StringBuilder("query {");
+        for (int i = 0; i < batch.size(); i++) {
+            final Pending item = batch.get(i);
+            query.append(' ').append(alias(i))
+                    .append(": repository(owner: ").append(quote(item.owner()))
+                    .append(", name: ").append(quote(item.repo()))
+                    .append(") { file: object(expression: ").append(quote(item.ref() + ":" + item.path()))
+                    .append(") { ... on Blob { text } } commit: object(expression: ").append(quote(item.ref() + "^{commit}"))
+                    .append(") { oid } }");
+        }
+        return query.append(" }").toString();
+    }
+
+    private static String alias(final int index) {
+        return "a" + index;
+    }
+
+    private static String quote(final String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static String stringOf(final JsonElement repository, final String object, final String field) {
+        if (repository == null || !repository.isJsonObject()) {
+            return null;
+        }
+        final JsonElement child = repository.getAsJsonObject().get(object);
+        if (child == null || !child.isJsonObject()) {
+            return null;
+        }
+        final JsonElement value = child.getAsJsonObject().get(field);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+}
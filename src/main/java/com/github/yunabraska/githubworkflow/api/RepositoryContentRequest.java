@@ -14,8 +14,10 @@ import java.nio.charset.StandardCharsets;
  */
 public class RepositoryContentRequest extends GithubApiRequest.Get<String> {
 
+    public static final String MEDIA_TYPE_RAW = "application/vnd.github.raw";
+
     public RepositoryContentRequest(@NotNull String url) {
-        super(url, "application/vnd.github.raw");
+        super(url, MEDIA_TYPE_RAW);
     }
 
     public static @NotNull RepositoryContentRequest request(
@@ -23,6 +25,15 @@ public class RepositoryContentRequest extends GithubApiRequest.Get<String> {
             @NotNull String repo,
             @NotNull String path,
             String ref
+    ) {
+        return new RepositoryContentRequest(url(owner, repo, path, ref));
+    }
+
+    public static @NotNull String url(
+            @NotNull String owner,
+            @NotNull String repo,
+            @NotNull String path,
+            String ref
     ) {
         // https://api.github.com/repos/OWNER/REPO/contents/PATH
         String url = String.format(
@@ -34,7 +45,7 @@ public class RepositoryContentRequest extends GithubApiRequest.Get<String> {
         if (StringUtils.isNotBlank(ref)) {
             url += "?ref=" + ref;
         }
-        return new RepositoryContentRequest(url);
+        return url;
     }
 
     @Override
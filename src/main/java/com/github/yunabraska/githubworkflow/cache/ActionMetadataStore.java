@@ -0,0 +1,243 @@
+package com.github.yunabraska.githubworkflow.cache;
+
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent store of the already extracted inputs and outputs of remote actions and reusable workflows.
+ * <p>
+ * Entries of refs which are a full commit SHA never expire. Entries of tags and branches remember the SHA they were resolved to,
+ * so they can be revalidated with a cheap SHA lookup instead of downloading and parsing the action again.
+ * <p>
+ * The file is memory mapped and read once on first access. Changes are written in background to a temp file which replaces the store atomically.
+ */
+public final class ActionMetadataStore {
+
+    private static final Logger LOG = Logger.getInstance(ActionMetadataStore.class);
+    static final int MAGIC = 0x47484157;
+    static final int VERSION = 2;
+    private static final int MAX_ENTRIES = Integer.getInteger("github.workflow.store.actions.size", 5000);
+    private static final Pattern FULL_SHA = Pattern.compile("[0-9a-fA-F]{40}");
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean loaded = new AtomicBoolean(false);
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final Executor writer;
+
+    /**
+     * @param sha          commit SHA the ref was resolved to, empty if unknown
+     * @param pinned       true if the ref itself is a full commit SHA, such entries never expire
+     * @param etag         ETag of the downloaded content for conditional requests, empty if unknown
+     * @param lastModified Last-Modified of the downloaded content for conditional requests, empty if unknown
+     */
+    public record Entry(String sha, boolean pinned, long fetchedAt, String etag, String lastModified, Map<String, String> inputs, Map<String, String> outputs) {
+
+        public boolean isFresh(final long maxAge) {
+            return pinned || fetchedAt > System.currentTimeMillis() - maxAge;
+        }
+    }
+
+    private static final class Holder {
+        private static final ActionMetadataStore INSTANCE = new ActionMetadataStore(
+                Paths.get(PathManager.getSystemPath(), "github-workflow-plugin", "actions.bin"),
+                AppExecutorUtil.createBoundedApplicationPoolExecutor("GitHub Action Metadata Store", 1)
+        );
+    }
+
+    /**
+     * @param writer runs the saves, one at a time
+     */
+    ActionMetadataStore(final Path file, final Executor writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    public static ActionMetadataStore getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public static boolean isFullSha(final String ref) {
+        return ref != null && FULL_SHA.matcher(ref).matches();
+    }
+
+    public Optional<Entry> get(final String key) {
+        load();
+        final Entry result = entries.get(key);
+        if (result != null) {
+            PluginMetrics.increment(PluginMetrics.Counter.DISK_HIT);
+        }
+        return Optional.ofNullable(result);
+    }
+
+    public Entry put(final String key, final String ref, final String sha, final String etag, final String lastModified, final Map<String, String> inputs, final Map<String, String> outputs) {
+        load();
+        final Entry entry = new Entry(orEmpty(sha), isFullSha(ref), System.currentTimeMillis(), orEmpty(etag), orEmpty(lastModified), Map.copyOf(inputs), Map.copyOf(outputs));
+        entries.put(key, entry);
+        scheduleSave();
+        return entry;
+    }
+
+    /**
+     * Marks an entry as revalidated, e.g. when its ref still points to the same SHA or the content was not modified.
+     *
+     * @param sha commit SHA the ref currently points to, null to keep the stored one
+     */
+    public Entry touch(final String key, final Entry entry, final String sha) {
+        final Entry result = new Entry(sha != null ? sha : entry.sha(), entry.pinned(), System.currentTimeMillis(), entry.etag(), entry.lastModified(), entry.inputs(), entry.outputs());
+        entries.put(key, result);
+        scheduleSave();
+        return result;
+    }
+
+    public int size() {
+        load();
+        return entries.size();
+    }
+
+    private void load() {
+        if (loaded.get()) {
+            return;
+        }
+        synchronized (loaded) {
+            if (loaded.get()) {
+                return;
+            }
+            if (Files.exists(file)) {
+                final long start = System.currentTimeMillis();
+                final long timer = PluginMetrics.start();
+                try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if (buffer.getInt() == MAGIC && buffer.getInt() == VERSION) {
+                        final int count = buffer.getInt();
+                        for (int i = 0; i < count; i++) {
+                            final String key = readString(buffer);
+                            entries.put(key, new Entry(readString(buffer), buffer.get() == 1, buffer.getLong(), readString(buffer), readString(buffer), readMap(buffer), readMap(buffer)));
+                        }
+                    }
+                    PluginMetrics.record(PluginMetrics.Timer.DISK_READ, timer);
+                    LOG.info("Loaded [" + entries.size() + "] action metadata from [" + file + "] in [" + (System.currentTimeMillis() - start) + "ms]");
+                } catch (IOException | RuntimeException e) {
+                    //CORRUPT OR INCOMPATIBLE STORE, IT WILL BE REPLACED WITH THE NEXT SAVE
+                    LOG.warn("Failed to read action metadata [" + file + "] message [" + e.getMessage() + "]");
+                    entries.clear();
+                }
+            }
+            loaded.set(true);
+        }
+    }
+
+    private void scheduleSave() {
+        if (dirty.compareAndSet(false, true)) {
+            writer.execute(this::save);
+        }
+    }
+
+    private void save() {
+        dirty.set(false);
+        final List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        if (snapshot.size() > MAX_ENTRIES) {
+            //KEEP THE MOST RECENTLY FETCHED
+            snapshot.sort(Comparator.comparingLong((Map.Entry<String, Entry> entry) -> entry.getValue().fetchedAt()).reversed());
+            snapshot.subList(MAX_ENTRIES, snapshot.size()).forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+            snapshot.subList(MAX_ENTRIES, snapshot.size()).clear();
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            final Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> item : snapshot) {
+                    final Entry entry = item.getValue();
+                    writeString(out, item.getKey());
+                    writeString(out, entry.sha());
+                    out.writeByte(entry.pinned() ? 1 : 0);
+                    out.writeLong(entry.fetchedAt());
+                    writeString(out, entry.etag());
+                    writeString(out, entry.lastModified());
+                    writeMap(out, entry.inputs());
+                    writeMap(out, entry.outputs());
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to write action metadata [" + file + "] message [" + e.getMessage() + "]");
+        }
+    }
+
+    private static String orEmpty(final String value) {
+        return value == null ? "" : value;
+    }
+
+    private static Map<String, String> readMap(final ByteBuffer buffer) {
+        //EACH ENTRY HAS AT LEAST TWO LENGTHS
+        final int size = checkedLength(buffer, buffer.getInt(), Integer.BYTES * 2);
+        final Map<String, String> result = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            result.put(readString(buffer), readString(buffer));
+        }
+        return Map.copyOf(result);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[checkedLength(buffer, buffer.getInt(), 1)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Guards against corrupt lengths, which would otherwise allocate huge arrays before the buffer underflows.
+     */
+    private static int checkedLength(final ByteBuffer buffer, final int length, final int bytesPerItem) {
+        if (length < 0 || (long) length * bytesPerItem > buffer.remaining()) {
+            throw new IllegalStateException("Corrupt length [" + length + "] at [" + buffer.position() + "]");
+        }
+        return length;
+    }
+
+    private static void writeMap(final DataOutputStream out, final Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
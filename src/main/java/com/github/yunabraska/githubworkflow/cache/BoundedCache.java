@@ -0,0 +1,317 @@
+package com.github.yunabraska.githubworkflow.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Size and weight bounded LRU cache with TinyLFU admission.
+ * <p>
+ * Every lookup and write counts the key in a small frequency sketch (also for misses). When the cache is full, a new entry is only admitted
+ * if its key was requested more often than the least recently used entry, so one-off entries can't flush the frequently used ones.
+ * The sketch halves all counters after {@code 10 * maximumSize} increments, so old popularity fades out.
+ * <p>
+ * Reads never lock: they look up a {@link ConcurrentHashMap} and only stamp the access time of the entry.
+ * Writes, invalidations and evictions are serialized by one lock, the least recently used entry is found by its stamp when room is needed.
+ * Keys must not be null.
+ */
+public class BoundedCache<K, V> {
+
+    public enum RemovalCause {
+        /** Removed to make room for a new entry */
+        EVICTED,
+        /** New value which was not admitted, as it is used less often than the entry it would have replaced or is heavier than the cache */
+        REJECTED,
+        /** Removed by {@link #invalidate(Object)} or {@link #invalidateIf(Predicate)} */
+        EXPLICIT
+    }
+
+    @FunctionalInterface
+    public interface RemovalListener<K, V> {
+        void onRemoval(K key, V value, RemovalCause cause);
+    }
+
+    private final String name;
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final ToIntFunction<V> weigher;
+    private final RemovalListener<K, V> removalListener;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final FrequencySketch sketch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private volatile long weight;
+
+    public BoundedCache(final String name, final int maximumSize, final long maximumWeight, final ToIntFunction<V> weigher, final RemovalListener<K, V> removalListener) {
+        this.name = name;
+        this.maximumSize = Math.max(1, maximumSize);
+        this.maximumWeight = Math.max(1, maximumWeight);
+        this.weigher = weigher != null ? weigher : value -> 1;
+        this.removalListener = removalListener;
+        this.sketch = new FrequencySketch(this.maximumSize);
+    }
+
+    public V get(final K key) {
+        return getOrDefault(key, null);
+    }
+
+    public V getOrDefault(final K key, final V defaultValue) {
+        sketch.increment(key);
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return defaultValue;
+        }
+        entry.accessed = System.nanoTime();
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * @return true if the value is in the cache afterwards, false if it was not admitted
+     */
+    public boolean put(final K key, final V value) {
+        return put(key, value, false) == null;
+    }
+
+    /**
+     * @return the present value or null if the given value was added or not admitted
+     */
+    public V putIfAbsent(final K key, final V value) {
+        final Entry<V> present = put(key, value, true);
+        return present == null || present.value == value ? null : present.value;
+    }
+
+    public void invalidate(final K key) {
+        final Entry<V> removed;
+        synchronized (writeLock) {
+            removed = entries.remove(key);
+            if (removed != null) {
+                weight -= removed.weight;
+            }
+        }
+        if (removed != null) {
+            notifyRemoval(key, removed.value, RemovalCause.EXPLICIT);
+        }
+    }
+
+    /**
+     * Scans all entries while holding the write lock, reads are not blocked.
+     */
+    public void invalidateIf(final Predicate<K> filter) {
+        final List<Map.Entry<K, Entry<V>>> removed = new ArrayList<>();
+        synchronized (writeLock) {
+            for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+                if (filter.test(entry.getKey()) && entries.remove(entry.getKey(), entry.getValue())) {
+                    removed.add(Map.entry(entry.getKey(), entry.getValue()));
+                    weight -= entry.getValue().weight;
+                }
+            }
+        }
+        removed.forEach(entry -> notifyRemoval(entry.getKey(), entry.getValue().value, RemovalCause.EXPLICIT));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long weight() {
+        return weight;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long rejections() {
+        return rejections.sum();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * A rejected update keeps the present value.
+     *
+     * @return the present entry when {@code onlyIfAbsent} and the key exists, the new entry when it was rejected, else null
+     */
+    private Entry<V> put(final K key, final V value, final boolean onlyIfAbsent) {
+        final Entry<V> entry = new Entry<>(value, Math.max(1, weigher.applyAsInt(value)));
+        final List<Map.Entry<K, Entry<V>>> evicted = new ArrayList<>();
+        final boolean admitted;
+        sketch.increment(key);
+        synchronized (writeLock) {
+            final Entry<V> present = entries.get(key);
+            if (present != null && onlyIfAbsent) {
+                present.accessed = System.nanoTime();
+                return present;
+            }
+            admitted = admit(key, entry, present, evicted);
+            if (admitted) {
+                entries.put(key, entry);
+                weight += entry.weight - (present == null ? 0 : present.weight);
+            }
+        }
+        evicted.forEach(victim -> notifyRemoval(victim.getKey(), victim.getValue().value, RemovalCause.EVICTED));
+        if (!admitted) {
+            notifyRemoval(key, value, RemovalCause.REJECTED);
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * @param present entry which is replaced, counts as free room, null for new keys
+     */
+    private boolean admit(final K key, final Entry<V> candidate, final Entry<V> present, final List<Map.Entry<K, Entry<V>>> evicted) {
+        if (candidate.weight > maximumWeight) {
+            rejections.increment();
+            return false;
+        }
+        if (!isOverflow(candidate, present)) {
+            return true;
+        }
+        //TINY LFU: A NEW CANDIDATE NEEDS TO BE MORE POPULAR THAN THE LRU VICTIM
+        Map.Entry<K, Entry<V>> victim = eldest(key);
+        if (present == null && victim != null && sketch.frequency(key) <= sketch.frequency(victim.getKey())) {
+            rejections.increment();
+            return false;
+        }
+        while (victim != null && isOverflow(candidate, present)) {
+            entries.remove(victim.getKey());
+            evicted.add(victim);
+            weight -= victim.getValue().weight;
+            evictions.increment();
+            victim = eldest(key);
+        }
+        return true;
+    }
+
+    /**
+     * @return least recently used entry other than the given key
+     */
+    private Map.Entry<K, Entry<V>> eldest(final K except) {
+        Map.Entry<K, Entry<V>> result = null;
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            if (!entry.getKey().equals(except) && (result == null || entry.getValue().accessed < result.getValue().accessed)) {
+                result = entry;
+            }
+        }
+        return result == null ? null : Map.entry(result.getKey(), result.getValue());
+    }
+
+    private boolean isOverflow(final Entry<V> candidate, final Entry<V> present) {
+        final int size = entries.size() + (present == null ? 1 : 0);
+        final long newWeight = weight + candidate.weight - (present == null ? 0 : present.weight);
+        return size > maximumSize || newWeight > maximumWeight;
+    }
+
+    private void notifyRemoval(final K key, final V value, final RemovalCause cause) {
+        if (removalListener != null) {
+            removalListener.onRemoval(key, value, cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedCache{" +
+                "name='" + name + '\'' +
+                ", size=" + size() + "/" + maximumSize +
+                ", weight=" + weight() + "/" + maximumWeight +
+                ", hits=" + hits.sum() +
+                ", misses=" + misses.sum() +
+                ", evictions=" + evictions.sum() +
+                ", rejections=" + rejections.sum() +
+                '}';
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final int weight;
+        private volatile long accessed = System.nanoTime();
+
+        private Entry(final V value, final int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Count-min sketch with four 4-bit counters (stored in bytes) per key.
+     * Updated without lock: a lost increment only makes a key look a little less popular, which is fine for an admission estimate.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final int MAX_COUNT = 15;
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(final int maximumSize) {
+            final int size = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24) * 4 - 1)) << 1;
+            this.table = new byte[size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        private void increment(final Object key) {
+            final int hash = spread(key);
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final int index = indexOf(hash, i);
+                final byte count = table[index];
+                if (count < MAX_COUNT) {
+                    table[index] = (byte) (count + 1);
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int frequency(final Object key) {
+            final int hash = spread(key);
+            int result = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                result = Math.min(result, table[indexOf(hash, i)]);
+            }
+            return result;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (byte) (table[i] >>> 1);
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(final int hash, final int i) {
+            long result = (hash + SEEDS[i]) * SEEDS[i];
+            result += result >>> 32;
+            return (int) result & mask;
+        }
+
+        private static int spread(final Object key) {
+            final int hash = key == null ? 0 : key.hashCode();
+            return (hash ^ (hash >>> 16)) * 0x45d9f3b;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.yunabraska.githubworkflow.cache;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent requests for the same key: only the first caller runs the loader, every caller which arrives while it runs
+ * gets the same {@link CompletableFuture}. The loader runs outside any map lock.
+ * <p>
+ * Whatever the loader throws, including {@link Error}s, completes the shared future and removes the key, so no caller waits forever.
+ */
+public class SingleFlight<K, V> {
+
+    private static final Logger LOG = Logger.getInstance(SingleFlight.class);
+
+    private final String name;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs the loader on the given executor unless a request for the key is already in flight.
+     */
+    public CompletableFuture<V> execute(final K key, final Supplier<V> loader, final Executor executor) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = join(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> load(key, loader, created));
+        } catch (Throwable e) {
+            //REJECTED
+            fail(key, created, e);
+        }
+        return created;
+    }
+
+    /**
+     * Like {@link #execute(Object, Supplier, Executor)} for loaders which are asynchronous themselves, e.g. batched requests.
+     * The loader is called on the calling thread and must not block.
+     */
+    public CompletableFuture<V> executeAsync(final K key, final Supplier<CompletableFuture<V>> loader) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = join(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            loader.get().whenComplete((value, error) -> {
+                try {
+                    if (error != null) {
+                        created.completeExceptionally(error);
+                    } else {
+                        created.complete(value);
+                    }
+                } finally {
+                    inFlight.remove(key, created);
+                }
+            });
+        } catch (Throwable e) {
+            fail(key, created, e);
+        }
+        return created;
+    }
+
+    /**
+     * Blocking variant of {@link #execute(Object, Supplier, Executor)}, the first caller runs the loader on its own thread.
+     */
+    public V get(final K key, final Supplier<V> loader) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = join(key, created);
+        if (existing == null) {
+            load(key, loader, created);
+        }
+        try {
+            return (existing == null ? created : existing).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private CompletableFuture<V> join(final K key, final CompletableFuture<V> created) {
+        requests.increment();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Coalesced [" + name + "] request [" + key + "] coalesced [" + coalesced.sum() + "/" + requests.sum() + "]");
+            }
+        }
+        return existing;
+    }
+
+    private void load(final K key, final Supplier<V> loader, final CompletableFuture<V> future) {
+        try {
+            future.complete(loader.get());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            if (e instanceof Error error) {
+                //WAITING CALLERS ARE RELEASED ABOVE, THE ERROR STILL REACHES THE THREAD
+                throw error;
+            }
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private void fail(final K key, final CompletableFuture<V> future, final Throwable error) {
+        try {
+            future.completeExceptionally(error);
+        } finally {
+            inFlight.remove(key, future);
+        }
+        if (error instanceof Error fatal) {
+            throw fatal;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlight{" +
+                "name='" + name + '\'' +
+                ", requests=" + requests.sum() +
+                ", coalesced=" + coalesced.sum() +
+                ", inFlight=" + inFlight.size() +
+                '}';
+    }
+}
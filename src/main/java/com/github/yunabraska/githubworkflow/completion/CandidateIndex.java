@@ -0,0 +1,34 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import com.intellij.codeInsight.completion.PrefixMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pre-filters completion candidates by the typed prefix before any {@link com.intellij.codeInsight.lookup.LookupElement} is created.
+ * <p>
+ * Candidates are checked with the {@link PrefixMatcher} of the result set, the same matcher the platform applies to the added elements,
+ * so the result is exactly what the platform would show (including typo and keyboard layout tolerance), only without building the rest.
+ */
+public final class CandidateIndex {
+
+    private CandidateIndex() {
+    }
+
+    /**
+     * @return candidates the matcher accepts, all candidates for an empty prefix
+     */
+    public static List<CompletionItem> filter(final List<CompletionItem> items, final PrefixMatcher matcher) {
+        if (matcher.getPrefix().isEmpty()) {
+            return items;
+        }
+        final List<CompletionItem> result = new ArrayList<>();
+        for (CompletionItem item : items) {
+            if (matcher.prefixMatches(item.key())) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import com.intellij.codeInsight.completion.CompletionParameters;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_JOBS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_STEPS;
+
+/**
+ * What the completion providers need to know about the caret, resolved once per completion invocation and shared by all {@code list*} providers.
+ * <p>
+ * The workflow model is only built on first use. Current node, enclosing job and step are found with one walk up from the caret.
+ * Not thread-safe, a context belongs to one completion invocation.
+ */
+public final class CompletionContext {
+
+    private final Supplier<WorkflowFile> fileSupplier;
+    private WorkflowFile file;
+    private boolean resolved;
+    private YamlNode currentNode;
+    private YamlNode job;
+    private YamlNode step;
+    private YamlNode trigger;
+
+    public CompletionContext(final Supplier<WorkflowFile> fileSupplier) {
+        this.fileSupplier = fileSupplier;
+    }
+
+    public static CompletionContext completionContextOf(final CompletionParameters parameters) {
+        return new CompletionContext(() -> WorkflowFile.workflowFileOf(parameters.getOriginalFile()).atPosition(parameters.getPosition()));
+    }
+
+    /**
+     * @return model of the whole file with the current node at the caret
+     */
+    public WorkflowFile file() {
+        if (file == null) {
+            file = fileSupplier.get();
+        }
+        return file;
+    }
+
+    public YamlNode currentNode() {
+        resolve();
+        return currentNode;
+    }
+
+    /**
+     * @return job enclosing the caret
+     */
+    public Optional<YamlNode> job() {
+        resolve();
+        return Optional.ofNullable(job);
+    }
+
+    /**
+     * @return step enclosing the caret
+     */
+    public Optional<YamlNode> step() {
+        resolve();
+        return Optional.ofNullable(step);
+    }
+
+    /**
+     * @return the `on` section of the workflow
+     */
+    public Optional<YamlNode> trigger() {
+        resolve();
+        return Optional.ofNullable(trigger);
+    }
+
+    public Optional<Map<String, String>> symbols(final String key) {
+        return file().symbols(key);
+    }
+
+    /**
+     * @return position of the step at the caret within its job, -1 if the caret is not in a step
+     */
+    public int stepPosition() {
+        final Optional<YamlNode> current = step();
+        if (current.isEmpty() || current.get().parent() == null) {
+            return -1;
+        }
+        final List<YamlNode> steps = current.get().parent().children();
+        for (int position = 0; position < steps.size(); position++) {
+            if (steps.get(position).startOffset() == current.get().startOffset()) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the step comes before the step at the caret and can be referenced there, always true if the caret is not in a step
+     */
+    public boolean isBeforeStep(final YamlNode step) {
+        return step().map(current -> step.startOffset() < current.startOffset()).orElse(true);
+    }
+
+    public boolean isOutputTriggerNode() {
+        return file().isOutputTriggerNode();
+    }
+
+    private void resolve() {
+        if (resolved) {
+            return;
+        }
+        resolved = true;
+        currentNode = file().getCurrentNode();
+        for (YamlNode node = currentNode; node != null; ) {
+            final YamlNode parent = node.parent();
+            if (parent != null && step == null && parent.hasName(FIELD_STEPS)) {
+                step = node;
+            } else if (parent != null && job == null && parent.hasName(FIELD_JOBS)) {
+                job = node;
+            }
+            node = parent;
+        }
+        //`on` IS READ AS BOOLEAN BY YAML 1.1 PARSERS
+        trigger = file().yaml().getChild("on").or(() -> file().yaml().getChild("true")).orElse(null);
+    }
+}
@@ -3,44 +3,78 @@ package com.github.yunabraska.githubworkflow.completion;
 import com.intellij.codeInsight.lookup.LookupElement;
 
 import java.util.*;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.*;
 import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowUtils.*;
 import static com.github.yunabraska.githubworkflow.completion.NodeIcon.*;
+import static com.github.yunabraska.githubworkflow.index.WorkflowSymbolIndex.KEY_INPUTS;
+import static com.github.yunabraska.githubworkflow.index.WorkflowSymbolIndex.KEY_JOBS;
+import static com.github.yunabraska.githubworkflow.index.WorkflowSymbolIndex.KEY_JOBS_WITH_OUTPUTS;
+import static com.github.yunabraska.githubworkflow.index.WorkflowSymbolIndex.KEY_SECRETS;
+import static com.github.yunabraska.githubworkflow.index.WorkflowSymbolIndex.KEY_STEP_ORDER;
+import static com.github.yunabraska.githubworkflow.index.WorkflowSymbolIndex.jobKey;
 import static java.util.Collections.singletonList;
+import static java.util.Optional.ofNullable;
 
 public class CompletionItem {
 
     private final String key;
     private final String text;
     private final NodeIcon icon;
+    private final LookupElement lookupElement;
 
     public CompletionItem(final String key, final String text, final NodeIcon icon) {
+        this(key, text, icon, null);
+    }
+
+    private CompletionItem(final String key, final String text, final NodeIcon icon, final LookupElement lookupElement) {
         this.key = key;
         this.text = text;
         this.icon = icon != null ? icon : NodeIcon.ICON_NODE;
+        this.lookupElement = lookupElement;
+    }
+
+    /**
+     * Item with its lookup element built up front, for static vocabularies shared between completion invocations.
+     */
+    public static CompletionItem prebuiltItemOf(final String key, final String text, final NodeIcon icon) {
+        final String description = orEmpty(text);
+        return new CompletionItem(key, description, icon, GitHubWorkflowUtils.toLookupElement(icon, Character.MIN_VALUE, key, description));
     }
 
     @SuppressWarnings({"java:S1142", "unused"})
-    public static List<CompletionItem> listSteps(final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
-        final YamlNode currentNode = part.get().getCurrentNode();
-        return completionItemsOf(currentNode.toWorkflowFile().getParentJob(part.get().isOutputJobNode() ? full.get() : null).map(job -> job.nodesToMap(
+    public static List<CompletionItem> listSteps(final CompletionContext context) {
+        final Optional<YamlNode> currentJob = context.job();
+        //ONLY STEPS BEFORE THE CARET STEP CAN BE REFERENCED
+        return completionItemsOf(currentJob.flatMap(job -> context.symbols(jobKey(job.name(), FIELD_STEPS)).map(steps -> stepsBefore(steps, context.symbols(jobKey(job.name(), KEY_STEP_ORDER)).orElse(Map.of()), context.stepPosition()))).orElseGet(() -> currentJob.map(job -> job.toWorkflowFile().nodesToMap(
                 FIELD_STEPS,
-                step -> step.getChild("id").isPresent(),
-                step -> step.getChild("id").map(YamlNode::value).orElse(""),
-                step -> step.getChild(FIELD_USES).map(YamlNode::value).orElseGet(() -> step.getChild("name").map(YamlNode::value).orElse(""))
-        )).orElse(null), ICON_STEP);
+                step -> step.hasChild("id") && context.isBeforeStep(step),
+                step -> orEmpty(step.getChildValue("id")),
+                step -> ofNullable(step.getChildValue(FIELD_USES)).orElseGet(() -> orEmpty(step.getChildValue("name")))
+        )).orElse(null)), ICON_STEP);
+    }
+
+    /**
+     * @param order    position of each step id in the job
+     * @param position position of the caret step, -1 for all steps
+     */
+    private static Map<String, String> stepsBefore(final Map<String, String> steps, final Map<String, String> order, final int position) {
+        if (position < 0) {
+            return steps;
+        }
+        final Map<String, String> result = new HashMap<>();
+        steps.forEach((stepId, description) -> ofNullable(order.get(stepId)).map(Integer::parseInt).filter(index -> index < position).ifPresent(index -> result.put(stepId, description)));
+        return result;
     }
 
     @SuppressWarnings({"java:S1142", "unused"})
-    public static List<CompletionItem> listStepOutputs(final String stepId, final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
+    public static List<CompletionItem> listStepOutputs(final String stepId, final CompletionContext context) {
         final List<CompletionItem> result = new ArrayList<>();
 
         //STEP OUTPUTS FROM USES [ACTION/WORKFLOW]
-        final WorkflowFile workflowFile = part.get().isOutputJobNode() ? full.get() : part.get();
-        final String jobId = part.get().getCurrentNode().toWorkflowFile().getParentJob(null).map(WorkflowFile::yaml).map(YamlNode::name).orElse("####");
+        final WorkflowFile workflowFile = context.file();
+        final String jobId = context.job().map(YamlNode::name).orElse("####");
         workflowFile.getActionOutputs(jobId, stepId)
                 .map(outputs -> completionItemsOf(outputs, ICON_OUTPUT))
                 .ifPresent(result::addAll);
@@ -54,19 +88,30 @@ public class CompletionItem {
     }
 
     @SuppressWarnings({"java:S1142", "unused"})
-    public static List<CompletionItem> listJobs(final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
-        return completionItemsOf((part.get().isOutputTriggerNode() ? full.get() : part.get()).nodesToMap(
+    public static List<CompletionItem> listJobs(final CompletionContext context) {
+        return completionItemsOf(context.symbols(KEY_JOBS_WITH_OUTPUTS).orElseGet(() -> context.file().nodesToMap(
                 FIELD_JOBS,
-                job -> job.name() != null && job.getChild(FIELD_OUTPUTS).isPresent(),
+                job -> job.name() != null && job.hasChild(FIELD_OUTPUTS),
                 job -> orEmpty(job.name()),
-                job -> job.getChild("name").map(YamlNode::value).orElse("")
-        ), ICON_JOB);
+                job -> orEmpty(job.getChildValue("name"))
+        )), ICON_JOB);
     }
 
     @SuppressWarnings({"java:S1142", "unused"})
-    public static List<CompletionItem> listJobOutputs(final String jobId, final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
+    public static List<CompletionItem> listJobOutputs(final String jobId, final CompletionContext context) {
         final List<CompletionItem> result = new ArrayList<>();
-        final Optional<YamlNode> jobNode = (part.get().isOutputTriggerNode() ? full.get() : part.get()).getJobById(jobId);
+        final Optional<Map<String, String>> jobOutputs = context.symbols(jobKey(jobId, FIELD_OUTPUTS));
+        final Optional<Map<String, String>> jobUses = context.symbols(jobKey(jobId, FIELD_USES));
+        if (jobOutputs.isPresent() && jobUses.isPresent()) {
+            //JOB OUTPUTS && JOB USES OUTPUTS
+            result.addAll(completionItemsOf(jobOutputs.get(), ICON_OUTPUT));
+            jobUses.get().keySet().stream()
+                    .map(uses -> WorkflowCallGraph.nodeOf(context.file().project(), uses))
+                    .map(WorkflowCallGraph.Node::outputs)
+                    .forEach(outputs -> result.addAll(completionItemsOf(outputs, ICON_OUTPUT)));
+            return result;
+        }
+        final Optional<YamlNode> jobNode = context.file().getJobById(jobId);
         //JOB OUTPUTS
         jobNode
                 .flatMap(job -> job.getChild(FIELD_OUTPUTS))
@@ -75,36 +120,38 @@ public class CompletionItem {
                 .ifPresent(result::addAll);
 
         //JOB USES OUTPUTS
-        jobNode.flatMap(node -> node.getChild(FIELD_USES))
-                .map(YamlNode::value)
-                .map(GitHubAction::getGitHubAction)
-                .map(GitHubAction::outputs)
+        jobNode.map(node -> node.getChildValue(FIELD_USES))
+                .map(uses -> WorkflowCallGraph.nodeOf(context.file().project(), uses))
+                .map(WorkflowCallGraph.Node::outputs)
                 .map(childList -> completionItemsOf(childList, ICON_OUTPUT))
                 .ifPresent(result::addAll);
         return result;
     }
 
     @SuppressWarnings({"java:S1142", "unused"})
-    public static List<CompletionItem> listNeeds(final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
-        final Optional<WorkflowFile> currentJob = part.get().getCurrentNode().toWorkflowFile().getParentJob(null);
-        return completionItemsOf(part.get().nodesToMap(
+    public static List<CompletionItem> listNeeds(final CompletionContext context) {
+        final Optional<YamlNode> currentJob = context.job();
+        return completionItemsOf(context.symbols(KEY_JOBS).map(jobs -> {
+            final Map<String, String> result = new HashMap<>(jobs);
+            currentJob.ifPresent(job -> result.remove(job.name()));
+            return result;
+        }).orElseGet(() -> context.file().nodesToMap(
                 FIELD_JOBS,
-                job -> job.name() != null && currentJob.map(currentJobNode -> !job.hasName(currentJobNode.yaml().name())).orElse(true),
+                job -> job.name() != null && currentJob.map(currentJobNode -> !job.hasName(currentJobNode.name())).orElse(true),
                 job -> orEmpty(job.name()),
-                job -> job.getChild("name").map(YamlNode::value).orElse("")
-        ), ICON_NEEDS);
+                job -> orEmpty(job.getChildValue("name"))
+        )), ICON_NEEDS);
     }
 
     @SuppressWarnings({"java:S1142", "unused"})
-    public static List<CompletionItem> listJobNeeds(final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
-        return part.get().getCurrentNode().toWorkflowFile()
-                .getParentJob(full.get())
-                .flatMap(job -> job.children().stream().filter(child -> child.hasName(FIELD_NEEDS)).findFirst())
+    public static List<CompletionItem> listJobNeeds(final CompletionContext context) {
+        return context.job()
+                .flatMap(job -> job.getChild(FIELD_NEEDS))
                 .map(needs -> needs.value() != null ? singletonList(needs.value()) : needs.children().stream().map(YamlNode::value).filter(Objects::nonNull).collect(Collectors.toList()))
                 .map(needs -> needs.stream()
                         .map(String::trim)
                         .filter(value -> !value.isEmpty())
-                        .map(need -> part.get().getJobById(need).orElse(null))
+                        .map(need -> context.file().getJobById(need).orElse(null))
                         .filter(Objects::nonNull)
                         .map(need -> completionItemOf(need.name(), getDescription(need), ICON_NEEDS))
                         .collect(Collectors.toList())
@@ -113,69 +160,68 @@ public class CompletionItem {
     }
 
     @SuppressWarnings({"java:S1142", "unused"})
-    public static List<CompletionItem> listInputs(final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
-        return completionItemsOf(part.get().nodesToMap(
+    public static List<CompletionItem> listInputs(final CompletionContext context) {
+        return completionItemsOf(context.symbols(KEY_INPUTS).orElseGet(() -> context.file().nodesToMap(
                 FIELD_INPUTS,
                 input -> input.name() != null,
                 input -> orEmpty(input.name()),
                 GitHubWorkflowUtils::getDescription
-        ), ICON_INPUT);
+        )), ICON_INPUT);
     }
 
-    public static List<CompletionItem> listSecrets(final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
+    public static List<CompletionItem> listSecrets(final CompletionContext context) {
+        final Optional<YamlNode> currentJob = context.job();
+        final Optional<Map<String, String>> jobSecrets = currentJob.flatMap(job -> context.symbols(jobKey(job.name(), FIELD_SECRETS)));
+        final Optional<Map<String, String>> workflowSecrets = context.symbols(KEY_SECRETS);
+        if (jobSecrets.isPresent() && workflowSecrets.isPresent()) {
+            final List<CompletionItem> result = new ArrayList<>(completionItemsOf(jobSecrets.get(), ICON_SECRET_JOB));
+            result.addAll(completionItemsOf(workflowSecrets.get(), ICON_SECRET_WORKFLOW));
+            return result;
+        }
         //JOB SECRETS
-        final List<CompletionItem> result = new ArrayList<>(part.get()
-                .getCurrentNode()
-                .toWorkflowFile()
-                .getParentJob(full.get())
-                .flatMap(job -> job.children().stream().filter(node -> node.hasName(FIELD_SECRETS)).findFirst())
+        final List<CompletionItem> result = new ArrayList<>(currentJob
+                .flatMap(job -> job.getChild(FIELD_SECRETS))
                 .map(envs -> completionItemsOf(envs.children(), ICON_SECRET_JOB))
                 .orElse(new ArrayList<>()));
 
         //WORKFLOW SECRETS
-        part.get().children().stream()
-                .filter(node -> node.hasName("on") || node.hasName("true"))
+        context.trigger()
                 .map(node -> node.toWorkflowFile().nodesToMap(
                         FIELD_SECRETS,
                         secret -> secret.name() != null,
                         secret -> orEmpty(secret.name()),
                         GitHubWorkflowUtils::getDescription
                 ))
-                .peek(map -> result.addAll(completionItemsOf(map, ICON_SECRET_WORKFLOW)))
-                .close();
+                .ifPresent(map -> result.addAll(completionItemsOf(map, ICON_SECRET_WORKFLOW)));
         return result;
     }
 
-    public static List<CompletionItem> listEnvs(final Supplier<WorkflowFile> part, final Supplier<WorkflowFile> full) {
+    public static List<CompletionItem> listEnvs(final CompletionContext context) {
         final List<CompletionItem> result = new ArrayList<>();
-        //CURRENT STEP TEXT ENVS [jobs.job_id.steps.step_id.run:value]
-        part.get().getCurrentNode()
-                .toWorkflowFile()
-                .getParentJob(null)
-                .map(job -> job.yaml().getAllChildren(child -> child.hasName(FIELD_RUN)))
-                .map(runList -> runList.stream().filter(node -> node.value() != null).map(node -> toGithubEnvs(node.value())).collect(Collectors.toList()))
+        final Optional<YamlNode> currentJob = context.job();
+        //PREVIOUS STEPS TEXT ENVS [jobs.job_id.steps.step_id.run:value], GITHUB_ENV IS ONLY VISIBLE TO THE FOLLOWING STEPS
+        currentJob
+                .flatMap(job -> job.getChild(FIELD_STEPS))
+                .map(steps -> steps.children().stream().filter(context::isBeforeStep).map(step -> step.getChildValue(FIELD_RUN)).filter(Objects::nonNull).map(GitHubWorkflowUtils::toGithubEnvs).collect(Collectors.toList()))
                 .ifPresent(envMapList -> envMapList.forEach(envMap -> result.addAll(completionItemsOf(envMap, ICON_TEXT_VARIABLE))));
 
         //CURRENT STEP ENVS [step.env.env_id:env_value]
-        result.addAll(part.get()
-                .getCurrentNode()
-                .toWorkflowFile()
-                .getParentStep(full.get())
-                .flatMap(step -> step.yaml().getChild(FIELD_ENVS))
+        result.addAll(context.step()
+                .flatMap(step -> step.getChild(FIELD_ENVS))
                 .map(envs -> completionItemsOf(envs.children(), ICON_ENV_STEP))
                 .orElse(new ArrayList<>())
         );
         //CURRENT JOB ENVS [jobs.job_id.envs.env_id:env_value]
-        result.addAll(part.get()
-                .getCurrentNode()
-                .toWorkflowFile()
-                .getParentJob(full.get())
-                .flatMap(job -> job.children().stream().filter(node -> node.hasName(FIELD_ENVS)).findFirst())
-                .map(envs -> completionItemsOf(envs.children(), ICON_ENV_JOB))
-                .orElse(new ArrayList<>())
+        result.addAll(currentJob
+                .flatMap(job -> context.symbols(jobKey(job.name(), FIELD_ENVS)))
+                .map(envs -> completionItemsOf(envs, ICON_ENV_JOB))
+                .orElseGet(() -> currentJob
+                        .flatMap(job -> job.getChild(FIELD_ENVS))
+                        .map(envs -> completionItemsOf(envs.children(), ICON_ENV_JOB))
+                        .orElse(new ArrayList<>()))
         );
         //DEFAULT ENVS
-        result.addAll(completionItemsOf(DEFAULT_VALUE_MAP.get(FIELD_ENVS).get(), ICON_ENV));
+        result.addAll(ContextVocabulary.completionItemsOf(FIELD_ENVS));
         return result;
     }
 
@@ -202,6 +248,6 @@ public class CompletionItem {
     }
 
     public LookupElement toLookupElement() {
-        return GitHubWorkflowUtils.toLookupElement(icon, Character.MIN_VALUE, key, text);
+        return lookupElement != null ? lookupElement : GitHubWorkflowUtils.toLookupElement(icon, Character.MIN_VALUE, key, text);
     }
 }
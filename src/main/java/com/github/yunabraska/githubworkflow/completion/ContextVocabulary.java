@@ -0,0 +1,78 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.yunabraska.githubworkflow.completion.CompletionItem.prebuiltItemOf;
+
+/**
+ * Static vocabularies of the expression contexts ({@code ${{ }}}, {@code github.}, {@code env.}), bundled in {@value #RESOURCE}.
+ * <p>
+ * Loaded once, the completion items and their lookup elements are built up front and shared between all completion invocations.
+ */
+public final class ContextVocabulary {
+
+    private static final Logger LOG = Logger.getInstance(ContextVocabulary.class);
+    private static final String RESOURCE = "/completion/contexts.json";
+    private static final Map<String, ContextVocabulary> VOCABULARIES = load();
+
+    private final Map<String, String> descriptions;
+    private final List<CompletionItem> items;
+
+    private ContextVocabulary(final Map<String, String> descriptions, final NodeIcon icon) {
+        this.descriptions = Collections.unmodifiableMap(descriptions);
+        final List<CompletionItem> result = new ArrayList<>(descriptions.size());
+        descriptions.forEach((key, description) -> result.add(prebuiltItemOf(key, description, icon)));
+        this.items = List.copyOf(result);
+    }
+
+    /**
+     * @return immutable, shared completion items of the context, empty for unknown contexts
+     */
+    public static List<CompletionItem> completionItemsOf(final String context) {
+        final ContextVocabulary vocabulary = VOCABULARIES.get(context);
+        return vocabulary == null ? List.of() : vocabulary.items;
+    }
+
+    /**
+     * @return description of the key within the context or null
+     */
+    public static String descriptionOf(final String context, final String key) {
+        final ContextVocabulary vocabulary = VOCABULARIES.get(context);
+        return vocabulary == null ? null : vocabulary.descriptions.get(key);
+    }
+
+    private static Map<String, ContextVocabulary> load() {
+        final Map<String, ContextVocabulary> result = new HashMap<>();
+        try (final InputStream stream = ContextVocabulary.class.getResourceAsStream(RESOURCE)) {
+            if (stream == null) {
+                LOG.error("Missing resource [" + RESOURCE + "]");
+                return result;
+            }
+            try (final Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, JsonElement> context : JsonParser.parseReader(reader).getAsJsonObject().entrySet()) {
+                    final JsonObject json = context.getValue().getAsJsonObject();
+                    final Map<String, String> descriptions = new LinkedHashMap<>();
+                    json.getAsJsonObject("items").entrySet().forEach(item -> descriptions.put(item.getKey(), item.getValue().getAsString()));
+                    result.put(context.getKey(), new ContextVocabulary(descriptions, NodeIcon.valueOf(json.get("icon").getAsString())));
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to load [" + RESOURCE + "]", e);
+        }
+        return Map.copyOf(result);
+    }
+}
@@ -1,25 +1,34 @@
 package com.github.yunabraska.githubworkflow.completion;
 
+import com.github.yunabraska.githubworkflow.api.CommitShaRequest;
+import com.github.yunabraska.githubworkflow.api.ConditionalResponse;
 import com.github.yunabraska.githubworkflow.api.GitHubRequestService;
+import com.github.yunabraska.githubworkflow.api.GraphQlBatchResolver;
 import com.github.yunabraska.githubworkflow.api.RepositoryContentRequest;
+import com.github.yunabraska.githubworkflow.cache.ActionMetadataStore;
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
 import com.github.yunabraska.githubworkflow.model.DownloadException;
 import com.github.yunabraska.githubworkflow.util.ToolUtils;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Supplier;
 
-import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowCompletionContributor.project;
 import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.*;
-import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowUtils.downloadAction;
 import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowUtils.orEmpty;
 import static java.util.Optional.ofNullable;
 
@@ -35,7 +44,9 @@ public class GitHubAction {
     private final AtomicReference<String> repo = new AtomicReference<>(null);
     private final AtomicReference<String> path = new AtomicReference<>(null);
     private final AtomicReference<String> ref = new AtomicReference<>(null);
+    private final Project ideaProject;
     private boolean local;
+    private boolean isAction;
 
     /**
      * There are some cases:
@@ -61,26 +72,23 @@ public class GitHubAction {
      * 6. ⛔`docker://{host}/{image}:{tag}`
      * <p>
      * so we can set a map to self define GitHub Token with repo and have a default to mapping else
+     *
+     * @param ideaProject project whose GitHub account and files are used, null if unknown
      */
-    private GitHubAction(final String uses) {
+    private GitHubAction(final Project ideaProject, final String uses) {
+        this.ideaProject = ideaProject;
         if (uses != null) {
 
             if (uses.contains("docker")) {
                 return;
             }
 
-            boolean isAction = !uses.contains("/workflows/");
+            this.isAction = !uses.contains("/workflows/");
             if (uses.charAt(0) == '.') {
-                String path = uses;
-                if (isAction) {
-                    path += "/action.yml";
-                }
                 this.name.set("local");
-                this.repo.set(project.get().getName());
-                this.path.set(path);
+                this.repo.set(ideaProject == null ? null : ideaProject.getName());
+                this.path.set(localPathOf(uses));
                 this.local = true;
-                // relative path, can directly download
-                setActionParameters(isAction);
                 return;
             }
 
@@ -101,33 +109,124 @@ public class GitHubAction {
                 path += "/action.yml";
             }
             this.path.set(path);
-            setActionParameters(isAction);
         }
     }
 
-    private static String getLocalFile(String relativePath) {
-        VirtualFile root = ProjectUtil.guessProjectDir(project.get());
-        if (root == null) {
-            return null;
-        }
-        VirtualFile action = root.findFileByRelativePath(relativePath);
-        if (action == null) {
+    /**
+     * @param uses local `uses` like `./.github/workflows/build.yml` or `./.github/actions/setup`
+     * @return path of the workflow or action file relative to the project dir
+     */
+    public static String localPathOf(final String uses) {
+        String result = uses.trim();
+        result = result.startsWith("./") ? result.substring(2) : result.substring(1);
+        result = result.endsWith("/") ? result.substring(0, result.length() - 1) : result;
+        return uses.contains("/workflows/") ? result : result + "/action.yml";
+    }
+
+    /**
+     * Reads the current content, including unsaved changes, from the {@link Document} of the file.
+     *
+     * @return content of the file relative to the project dir or null if it doesn't exist
+     */
+    public static String readLocalFile(final Project ideaProject, final String relativePath) {
+        final VirtualFile root = ideaProject == null ? null : ProjectUtil.guessProjectDir(ideaProject);
+        final VirtualFile file = root == null ? null : root.findFileByRelativePath(relativePath);
+        if (file == null || file.isDirectory()) {
             return null;
         }
-        return LoadTextUtil.loadText(action).toString();
+        return ReadAction.compute(() -> {
+            final Document document = FileDocumentManager.getInstance().getDocument(file);
+            //NO DOCUMENT FOR BINARY OR TOO LARGE FILES
+            return document != null ? document.getText() : LoadTextUtil.loadText(file).toString();
+        });
     }
 
-    public static GitHubAction getGitHubAction(final String uses) {
+    /**
+     * @return the one spelling of `uses` which is used as key of the {@link GitHubWorkflowConfig#ACTION_CACHE} and of the in-flight requests
+     */
+    public static String keyOf(final String uses) {
+        return uses == null ? "" : uses.trim();
+    }
+
+    /**
+     * Blocking. Concurrent calls for the same `uses` share one resolution.
+     */
+    public static GitHubAction getGitHubAction(final Project ideaProject, final String uses) {
+        final String key = keyOf(uses);
         try {
-            GitHubAction gitHubAction = ACTION_CACHE.getOrDefault(uses, null);
+            final GitHubAction gitHubAction = ACTION_CACHE.getOrDefault(key, null);
             if (gitHubAction == null || gitHubAction.expiration() < System.currentTimeMillis()) {
-                gitHubAction = new GitHubAction(uses);
-                ACTION_CACHE.put(uses, gitHubAction);
+                return ACTION_REQUESTS.get(key, () -> resolveAndCache(ideaProject, key, Runnable::run).join());
             }
             return gitHubAction;
         } catch (Exception e) {
-            return new GitHubAction(null);
+            return new GitHubAction(ideaProject, null);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #getGitHubAction(Project, String)}, resolves on the given executor.
+     * Actions which are not in the {@link ActionMetadataStore} yet are downloaded in batches by the {@link GraphQlBatchResolver}.
+     */
+    public static CompletableFuture<GitHubAction> getGitHubActionAsync(final Project ideaProject, final String uses, final Executor executor) {
+        final String key = keyOf(uses);
+        final GitHubAction gitHubAction = ACTION_CACHE.getOrDefault(key, null);
+        if (gitHubAction != null && gitHubAction.expiration() >= System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(gitHubAction);
         }
+        return ACTION_REQUESTS.executeAsync(key, () -> resolveAndCache(ideaProject, key, executor))
+                .exceptionally(e -> new GitHubAction(ideaProject, null));
+    }
+
+    /**
+     * @param key normalized `uses`, see {@link #keyOf(String)}
+     */
+    private static CompletableFuture<GitHubAction> resolveAndCache(final Project ideaProject, final String key, final Executor executor) {
+        final GitHubAction cached = ACTION_CACHE.getOrDefault(key, null);
+        if (cached != null && cached.expiration() >= System.currentTimeMillis()) {
+            //RESOLVED BY A REQUEST WHICH JUST FINISHED
+            return CompletableFuture.completedFuture(cached);
+        }
+        final long start = PluginMetrics.start();
+        return new GitHubAction(ideaProject, key).resolveAsync(executor).thenApply(gitHubAction -> {
+            PluginMetrics.record(PluginMetrics.Timer.ACTION_RESOLVE, start);
+            //LOCAL FILES DIFFER PER PROJECT, WorkflowCallGraph MEMOIZES THEM PER PROJECT
+            if (!gitHubAction.local) {
+                ACTION_CACHE.put(key, gitHubAction);
+            }
+            return gitHubAction;
+        });
+    }
+
+    /**
+     * Never downloads (stale-while-revalidate). Returns the cached action, resolves local actions directly and schedules the resolution of remote actions in background.
+     * Until the resolution is done, the expired action from memory or from the {@link ActionMetadataStore} is returned.
+     * The running completion of the project is restarted as soon as the refreshed action differs.
+     *
+     * @param ideaProject project whose GitHub account is used, without project nothing is resolved
+     */
+    public static GitHubAction getCachedGitHubAction(final Project ideaProject, final String uses) {
+        final String key = keyOf(uses);
+        if (key.isEmpty()) {
+            return new GitHubAction(ideaProject, null);
+        }
+        if (key.charAt(0) == '.') {
+            return ideaProject == null ? new GitHubAction(null, null) : getGitHubAction(ideaProject, key);
+        }
+        final GitHubAction cached = ACTION_CACHE.getOrDefault(key, null);
+        if (cached != null && cached.expiration() >= System.currentTimeMillis()) {
+            return cached;
+        }
+        if (ideaProject != null) {
+            GitHubActionPrefetcher.resolveAsync(ideaProject, key, true);
+        }
+        if (cached != null) {
+            return cached;
+        }
+        //STALE FROM METADATA STORE [expired]
+        final GitHubAction stale = new GitHubAction(ideaProject, key).resolveFromStore();
+        final GitHubAction previous = ACTION_CACHE.putIfAbsent(key, stale);
+        return previous != null ? previous : stale;
     }
 
     public String name() {
@@ -158,40 +257,154 @@ public class GitHubAction {
         return ref.get();
     }
 
+    private GitHubAction resolve() {
+        if (path() != null) {
+            setActionParameters(isAction);
+        }
+        return this;
+    }
+
+    /**
+     * Unknown remote actions join the next GraphQL batch without blocking a thread, everything else resolves on the executor.
+     * If the GraphQL lookup fails, the action is resolved with the REST API instead.
+     */
+    private CompletableFuture<GitHubAction> resolveAsync(final Executor executor) {
+        if (path() == null || local || ActionMetadataStore.getInstance().get(toString()).isPresent()) {
+            return CompletableFuture.supplyAsync(this::resolve, executor);
+        }
+        //REST FALLBACK IF THE BATCH OR THIS LOOKUP FAILED, E.G. RATE LIMITED
+        return GraphQlBatchResolver.getInstance().fetch(ideaProject, name(), repo(), path(), ref())
+                .handleAsync((blob, error) -> error == null ? resolveDownloaded(blob) : resolve(), executor)
+                .exceptionally(e -> {
+                    expiration.set(System.currentTimeMillis() + CACHE_TEN_MINUTES);
+                    return this;
+                });
+    }
+
+    /**
+     * @param blob file of the {@link GraphQlBatchResolver}, null without GitHub account
+     */
+    private GitHubAction resolveDownloaded(final GraphQlBatchResolver.Blob blob) {
+        if (blob == null) {
+            expiration.set(System.currentTimeMillis() + CACHE_ONE_DAY);
+        } else if (blob.text() == null) {
+            //NOT FOUND
+            expiration.set(System.currentTimeMillis() + CACHE_TEN_MINUTES);
+        } else {
+            extractActionParameters(blob.text(), isAction);
+            ActionMetadataStore.getInstance().put(toString(), ref(), blob.commitSha(), null, null, inputs, outputs);
+            expiration.set(System.currentTimeMillis() + CACHE_ONE_DAY);
+        }
+        return this;
+    }
+
+    private GitHubAction resolveFromStore() {
+        if (path() != null && !local) {
+            ActionMetadataStore.getInstance().get(toString()).ifPresent(this::applyMetadata);
+        }
+        return this;
+    }
+
     private void setActionParameters(final boolean isAction) {
-        try {
-            Supplier<String> downloader;
+        if (this.local) {
+            try {
+                extractActionParameters(orEmpty(readLocalFile(ideaProject, this.path())), isAction);
+                //NOT CACHED, SEE resolveAndCache
+                expiration.set(Long.MAX_VALUE);
+            } catch (Exception e) {
+                expiration.set(System.currentTimeMillis() + CACHE_TEN_MINUTES);
+            }
+            return;
+        }
 
-            if (this.local) {
-                downloader = () -> getLocalFile(this.path());
+        final String key = toString();
+        final ActionMetadataStore store = ActionMetadataStore.getInstance();
+        final Optional<ActionMetadataStore.Entry> stored = store.get(key);
+        if (stored.filter(entry -> entry.isFresh(CACHE_ONE_DAY)).isPresent()) {
+            applyMetadata(stored.get());
+            expiration.set(System.currentTimeMillis() + CACHE_ONE_DAY);
+            return;
+        }
+        try {
+            //PIN THE REF FIRST, SO A TAG OR BRANCH MOVING DURING THE DOWNLOAD CAN'T STORE CONTENT UNDER THE WRONG SHA
+            final String sha = resolveSha();
+            if (sha != null && stored.isPresent() && sha.equals(stored.get().sha())) {
+                //SAME SHA MEANS SAME CONTENT
+                applyMetadata(store.touch(key, stored.get(), sha));
             } else {
-                downloader = () -> {
-                    RepositoryContentRequest request = RepositoryContentRequest.request(
-                        this.name(),
-                        this.repo(),
-                        this.path(),
-                        this.ref()
-                    );
-                    try {
-                        return ApplicationManager.getApplication().getService(GitHubRequestService.class).request(
-                            project.get(), request
-                        );
-                    } catch (IOException e) {
-                        LOGGER.error("Failed to download action.yml", e);
-                        throw new DownloadException(e);
-                    }
-                };
+                //CONDITIONAL: A MOVED TAG OFTEN STILL HAS THE SAME action.yml
+                final ConditionalResponse response = downloadAction(stored.orElse(null), sha);
+                if (response == null) {
+                    stored.ifPresent(this::applyMetadata);
+                } else if (response.notModified() && stored.isPresent()) {
+                    applyMetadata(store.touch(key, stored.get(), sha));
+                } else {
+                    extractActionParameters(orEmpty(response.body()), isAction);
+                    store.put(key, this.ref(), sha, response.etag(), response.lastModified(), inputs, outputs);
+                }
             }
-
-            extractActionParameters(downloadAction(downloader, this), isAction);
             expiration.set(System.currentTimeMillis() + CACHE_ONE_DAY);
         } catch (Exception e) {
+            stored.ifPresent(this::applyMetadata);
             expiration.set(System.currentTimeMillis() + CACHE_TEN_MINUTES);
         }
     }
 
+    /**
+     * @param stored previous metadata which validators are sent with the request, can be null
+     * @param sha    commit to download from, null to use the ref
+     * @return response or null without GitHub account
+     */
+    private ConditionalResponse downloadAction(final ActionMetadataStore.Entry stored, final String sha) {
+        final String url = RepositoryContentRequest.url(
+            this.name(),
+            this.repo(),
+            this.path(),
+            sha != null ? sha : this.ref()
+        );
+        try {
+            return ApplicationManager.getApplication().getService(GitHubRequestService.class).requestConditional(
+                ideaProject,
+                url,
+                RepositoryContentRequest.MEDIA_TYPE_RAW,
+                stored == null ? null : stored.etag(),
+                stored == null ? null : stored.lastModified()
+            );
+        } catch (IOException e) {
+            LOGGER.error("Failed to download action.yml", e);
+            throw new DownloadException(e);
+        }
+    }
+
+    /**
+     * @return commit SHA of the ref or null if it can't be resolved
+     */
+    private String resolveSha() {
+        if (ActionMetadataStore.isFullSha(this.ref())) {
+            return this.ref();
+        }
+        if (this.ref() == null || ToolUtils.getGitHubAccount().isEmpty()) {
+            return null;
+        }
+        try {
+            return ApplicationManager.getApplication().getService(GitHubRequestService.class).request(
+                ideaProject, CommitShaRequest.request(this.name(), this.repo(), this.ref())
+            );
+        } catch (IOException e) {
+            LOGGER.warn("Failed to resolve sha of [" + this + "] message [" + e.getMessage() + "]");
+            return null;
+        }
+    }
+
+    private void applyMetadata(final ActionMetadataStore.Entry entry) {
+        inputs.clear();
+        outputs.clear();
+        inputs.putAll(entry.inputs());
+        outputs.putAll(entry.outputs());
+    }
+
     private void extractActionParameters(final String content, final boolean isAction) {
-        final WorkflowFile workflowFile = WorkflowFile.workflowFileOf(toString(), content);
+        final WorkflowFile workflowFile = WorkflowFile.workflowFileOf(content);
         inputs.putAll(getActionParameters(workflowFile, FIELD_INPUTS, isAction));
         outputs.putAll(getActionParameters(workflowFile, FIELD_OUTPUTS, isAction));
     }
@@ -199,7 +412,7 @@ public class GitHubAction {
 
     private Map<String, String> getActionParameters(final WorkflowFile workflowFile, final String node, final boolean action) {
         return workflowFile.nodesToMap(
-            node, n -> action || (ofNullable(n.parent()).map(YamlNode::parent).map(YamlNode::parent).filter(parent -> "on".equals(parent.name) || "true".equals(parent.name)).isPresent()),
+            node, n -> action || (ofNullable(n.parent()).map(YamlNode::parent).map(YamlNode::parent).filter(parent -> parent.hasName("on") || parent.hasName("true")).isPresent()),
             n -> orEmpty(n.name()),
             GitHubWorkflowUtils::getDescription
         );
@@ -0,0 +1,15 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import com.github.yunabraska.githubworkflow.metrics.PluginMetricsExporter;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import org.jetbrains.annotations.NotNull;
+
+public class GitHubActionPrefetchActivity implements StartupActivity.DumbAware {
+
+    @Override
+    public void runActivity(@NotNull final Project project) {
+        PluginMetricsExporter.getInstance();
+        GitHubActionPrefetcher.getInstance(project).schedule();
+    }
+}
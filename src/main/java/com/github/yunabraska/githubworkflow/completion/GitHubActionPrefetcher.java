@@ -0,0 +1,133 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import com.github.yunabraska.githubworkflow.index.UsesReferenceIndex;
+import com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory;
+import com.intellij.codeInsight.AutoPopupController;
+import com.intellij.codeInsight.lookup.Lookup;
+import com.intellij.codeInsight.lookup.LookupManager;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.ACTION_CACHE;
+
+/**
+ * Resolves all remote `uses` of the project in background, so that completion only reads the {@link GitHubAction} cache.
+ * Runs when the project is opened and when workflow or action files change.
+ */
+@Service(Service.Level.PROJECT)
+public final class GitHubActionPrefetcher implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(GitHubActionPrefetcher.class);
+    private static final int PREFETCH_DELAY_MS = 1000;
+    private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("GitHub Action Resolver", 4);
+
+    private final Project myProject;
+    private final Alarm alarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+
+    public GitHubActionPrefetcher(final Project project) {
+        this.myProject = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull final List<? extends VFileEvent> events) {
+                //EVENTS ARE APP-WIDE, FILES OF OTHER PROJECTS AND LIBRARIES ARE SKIPPED BEFORE LOOKING AT NAMES
+                final ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(myProject);
+                for (VFileEvent event : events) {
+                    final VirtualFile file = event.getFile();
+                    if (file != null && file.isValid() && fileIndex.isInContent(file) && isUsesSource(file)) {
+                        schedule();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    public static GitHubActionPrefetcher getInstance(final Project project) {
+        return project.getService(GitHubActionPrefetcher.class);
+    }
+
+    /**
+     * Resolves the given `uses` on a background thread with the GitHub account of the project. Calls for a `uses` which is already pending join the pending resolution.
+     */
+    public static void resolveAsync(final Project project, final String uses) {
+        resolveAsync(project, uses, false);
+    }
+
+    /**
+     * @param restartCompletion restarts the active completion popup of the project when the resolved action differs from the cached one
+     */
+    public static void resolveAsync(final Project project, final String uses, final boolean restartCompletion) {
+        if (uses != null) {
+            final GitHubAction before = ACTION_CACHE.getOrDefault(GitHubAction.keyOf(uses), null);
+            GitHubAction.getGitHubActionAsync(project, uses, EXECUTOR).thenAccept(after -> {
+                if (restartCompletion && before != after && (before == null || !before.inputs().equals(after.inputs()) || !before.outputs().equals(after.outputs()))) {
+                    restartCompletion(project);
+                }
+            });
+        }
+    }
+
+    /**
+     * Restarts the lookup of the project, which is the one of the editor that asked for the action. Other projects and editors are not touched.
+     */
+    private static void restartCompletion(final Project project) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            final LookupManager lookupManager = LookupManager.getInstance(project);
+            final Lookup lookup = lookupManager.getActiveLookup();
+            final Editor editor = lookup == null ? null : lookup.getEditor();
+            final VirtualFile file = editor == null ? null : FileDocumentManager.getInstance().getFile(editor.getDocument());
+            if (file != null && GitHubSchemaProviderFactory.schemaKindOf(file) == GitHubSchemaProviderFactory.SchemaKind.WORKFLOW) {
+                //AUTO POPUP IS ONLY SCHEDULED WITHOUT ACTIVE LOOKUP
+                lookupManager.hideActiveLookup();
+                AutoPopupController.getInstance(project).scheduleAutoPopup(editor);
+            }
+        }, ModalityState.NON_MODAL, project.getDisposed());
+    }
+
+    private static boolean isUsesSource(final VirtualFile file) {
+        final GitHubSchemaProviderFactory.SchemaKind kind = GitHubSchemaProviderFactory.schemaKindOf(file);
+        return kind == GitHubSchemaProviderFactory.SchemaKind.WORKFLOW || kind == GitHubSchemaProviderFactory.SchemaKind.ACTION;
+    }
+
+    public void schedule() {
+        if (!alarm.isDisposed()) {
+            alarm.cancelAllRequests();
+            alarm.addRequest(this::prefetch, PREFETCH_DELAY_MS);
+        }
+    }
+
+    private void prefetch() {
+        ReadAction.nonBlocking(() -> UsesReferenceIndex.usesReferencesOf(myProject))
+                .inSmartMode(myProject)
+                .expireWith(this)
+                .submit(AppExecutorUtil.getAppExecutorService())
+                .onSuccess(usesList -> {
+                    LOG.info("Prefetch [" + usesList.size() + "] actions for project [" + myProject.getName() + "]");
+                    //LOCAL USES ARE READ ON DEMAND BY THE WorkflowCallGraph
+                    usesList.stream().filter(uses -> !uses.trim().startsWith(".")).forEach(uses -> resolveAsync(myProject, uses));
+                });
+    }
+
+    @Override
+    public void dispose() {
+        //alarm and message bus connection are disposed with this service
+    }
+}
@@ -1,19 +1,16 @@
 package com.github.yunabraska.githubworkflow.completion;
 
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
 import com.intellij.codeInsight.completion.*;
 import com.intellij.codeInsight.completion.impl.CamelHumpMatcher;
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.util.ProcessingContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.yaml.psi.YAMLKeyValue;
 
-import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.github.yunabraska.githubworkflow.completion.CompletionItem.*;
@@ -27,8 +24,6 @@ import static java.util.Optional.ofNullable;
 public class GitHubWorkflowCompletionContributor extends CompletionContributor {
 
     private static final Logger LOG = Logger.getInstance(GitHubWorkflowCompletionContributor.class);
-    // FIXME
-    public static AtomicReference<Project> project = new AtomicReference<>(null);
 
     public GitHubWorkflowCompletionContributor() {
         extend(CompletionType.BASIC, psiElement(), completionProvider());
@@ -44,7 +39,6 @@ public class GitHubWorkflowCompletionContributor extends CompletionContributor {
                 @NotNull final CompletionResultSet resultSet
             ) {
                 PsiElement position = parameters.getPosition();
-                project.set(position.getProject());
                 if (!position.isValid()) {
                     LOG.error("current PsiElement not valid: " + position);
                     return;
@@ -52,15 +46,11 @@ public class GitHubWorkflowCompletionContributor extends CompletionContributor {
 
                 // parameters 是当前指针的 PSI
                 getWorkflowFile(position).ifPresent(path -> {
-                    //CACHE USE ONLY ON NEED
-                    // FIXME: 我感觉这里应该有更优雅的 cache 方式
-                    final AtomicReference<WorkflowFile> partCache = new AtomicReference<>(null);
-                    final AtomicReference<WorkflowFile> fullCache = new AtomicReference<>(null);
-                    final Supplier<WorkflowFile> partFile = fromPartCache(partCache, path, parameters);
-                    final Supplier<WorkflowFile> fullFile = fromFullCache(partCache, fullCache, path, parameters);
+                    //MODEL AND CARET NODE ARE RESOLVED ONCE, ONLY ON NEED
+                    final CompletionContext completionContext = CompletionContext.completionContextOf(parameters);
 
                     final String[] prefix = new String[]{""};
-                    final Optional<String[]> caretBracketItem = getCaretBracketItem(parameters, partFile, prefix);
+                    final Optional<String[]> caretBracketItem = getCaretBracketItem(parameters, completionContext, prefix);
                     final CompletionResultSet resultSetPrefix = resultSet.withPrefixMatcher(new CamelHumpMatcher(prefix[0]));
                     caretBracketItem.ifPresent(cbi -> {
                         final Map<Integer, List<CompletionItem>> completionResultMap = new HashMap<>();
@@ -71,19 +61,19 @@ public class GitHubWorkflowCompletionContributor extends CompletionContributor {
                             if (i != 0 && (previousCompletions.isEmpty() || previousCompletions.stream().noneMatch(item -> item.key().equals(cbi[index])))) {
                                 return;
                             } else {
-                                addCompletionItems(cbi, i, partFile, fullFile, completionResultMap);
+                                addCompletionItems(cbi, i, completionContext, completionResultMap);
                             }
                         }
                         //ADD LOOKUP ELEMENTS
                         ofNullable(completionResultMap.getOrDefault(cbi.length - 1, null))
-                            .map(GitHubWorkflowCompletionContributor::toLookupItems)
+                            .map(items -> toLookupItems(CandidateIndex.filter(items, resultSetPrefix.getPrefixMatcher())))
                             .ifPresent(resultSetPrefix::addAllElements);
                     });
                     //ACTIONS && WORKFLOWS
                     if (caretBracketItem.isEmpty()) {
-                        if (FIELD_NEEDS.equals(partFile.get().getCurrentNode().name())) {
-                            Optional.of(listNeeds(partFile, fullFile)).filter(cil -> !cil.isEmpty())
-                                .map(GitHubWorkflowCompletionContributor::toLookupItems)
+                        if (FIELD_NEEDS.equals(completionContext.currentNode().name())) {
+                            Optional.of(listNeeds(completionContext)).filter(cil -> !cil.isEmpty())
+                                .map(items -> toLookupItems(CandidateIndex.filter(items, resultSetPrefix.getPrefixMatcher())))
                                 .ifPresent(resultSetPrefix::addAllElements);
                         } else {
                             // hard to find `with: c` different with `with:<EOL> c`
@@ -101,56 +91,32 @@ public class GitHubWorkflowCompletionContributor extends CompletionContributor {
                                 return;
                             }
                             //TODO: AutoCompletion middle?
-                            partFile.get().getActionInputs().ifPresent(map -> addLookupElements(resultSet, map, NodeIcon.ICON_INPUT, ':'));
+                            completionContext.file().getActionInputs().ifPresent(map -> addLookupElements(resultSet, map, NodeIcon.ICON_INPUT, ':'));
                         }
                     }
                 });
             }
-
-            private Supplier<WorkflowFile> fromPartCache(final AtomicReference<WorkflowFile> partCache, final Path path, final CompletionParameters parameters) {
-                return () -> {
-                    if (partCache.get() == null) {
-                        final int caretOffset = parameters.getOffset();
-                        final String wholeText = parameters.getOriginalFile().getText();
-                        final int endIndex = Math.max(wholeText.indexOf("\n", caretOffset), wholeText.indexOf("\r", caretOffset));
-                        partCache.set(WorkflowFile.workflowFileOf("part_" + path, wholeText.substring(0, endIndex != -1 ? endIndex : caretOffset)));
-                    }
-                    return partCache.get();
-                };
-            }
-
-            private Supplier<WorkflowFile> fromFullCache(final AtomicReference<WorkflowFile> partCache, final AtomicReference<WorkflowFile> fullCache, final Path path, final CompletionParameters parameters) {
-                return () -> {
-                    if (fullCache.get() == null) {
-                        fullCache.set(ofNullable(WorkflowFile.workflowFileOf("complete_" + path, parameters.getOriginalFile().getText())).orElse(fromPartCache(partCache, path, parameters).get()));
-                    }
-                    return fullCache.get();
-                };
-            }
         };
     }
 
-    private static void addCompletionItems(final String[] cbi, final int i, final Supplier<WorkflowFile> partFile, final Supplier<WorkflowFile> fullFile, final Map<Integer, List<CompletionItem>> completionItemMap) {
+    private static void addCompletionItems(final String[] cbi, final int i, final CompletionContext context, final Map<Integer, List<CompletionItem>> completionItemMap) {
         if (i == 0) {
             switch (cbi[0]) {
-                case FIELD_STEPS -> completionItemMap.put(i, listSteps(partFile, fullFile));
-                case FIELD_JOBS -> completionItemMap.put(i, listJobs(partFile, fullFile));
-                case FIELD_ENVS -> completionItemMap.put(i, listEnvs(partFile, fullFile));
+                case FIELD_STEPS -> completionItemMap.put(i, listSteps(context));
+                case FIELD_JOBS -> completionItemMap.put(i, listJobs(context));
+                case FIELD_ENVS -> completionItemMap.put(i, listEnvs(context));
                 case FIELD_GITHUB ->
-                    completionItemMap.put(i, completionItemsOf(DEFAULT_VALUE_MAP.get(FIELD_GITHUB).get(), ICON_ENV));
-                case FIELD_INPUTS -> completionItemMap.put(i, listInputs(partFile, fullFile));
-                case FIELD_SECRETS -> completionItemMap.put(i, listSecrets(partFile, fullFile));
-                case FIELD_NEEDS -> completionItemMap.put(i, listJobNeeds(partFile, fullFile));
+                    completionItemMap.put(i, ContextVocabulary.completionItemsOf(FIELD_GITHUB));
+                case FIELD_INPUTS -> completionItemMap.put(i, listInputs(context));
+                case FIELD_SECRETS -> completionItemMap.put(i, listSecrets(context));
+                case FIELD_NEEDS -> completionItemMap.put(i, listJobNeeds(context));
                 default -> {
                     //ON.workflow_call.outputs
-                    if (partFile.get().isOutputTriggerNode()) {
-                        completionItemMap.put(i, singletonList(completionItemOf(FIELD_JOBS, DEFAULT_VALUE_MAP.get(FIELD_DEFAULT).get().get(FIELD_JOBS), ICON_JOB)));
-                    } else if (!"runs-on".equals(partFile.get().getCurrentNode().name()) && !"os".equals(partFile.get().getCurrentNode().name())) {
+                    if (context.isOutputTriggerNode()) {
+                        completionItemMap.put(i, singletonList(completionItemOf(FIELD_JOBS, ContextVocabulary.descriptionOf(FIELD_DEFAULT, FIELD_JOBS), ICON_JOB)));
+                    } else if (!context.currentNode().hasName("runs-on") && !context.currentNode().hasName("os")) {
                         //DEFAULT
-                        ofNullable(DEFAULT_VALUE_MAP.getOrDefault(FIELD_DEFAULT, null))
-                            .map(Supplier::get)
-                            .map(map -> completionItemsOf(map, ICON_NODE))
-                            .ifPresent(items -> completionItemMap.put(i, items));
+                        completionItemMap.put(i, ContextVocabulary.completionItemsOf(FIELD_DEFAULT));
                     }
                 }
             }
@@ -163,8 +129,8 @@ public class GitHubWorkflowCompletionContributor extends CompletionContributor {
             }
         } else if (i == 2) {
             switch (cbi[0]) {
-                case FIELD_JOBS, FIELD_NEEDS -> completionItemMap.put(i, listJobOutputs(cbi[1], partFile, fullFile));
-                case FIELD_STEPS -> completionItemMap.put(i, listStepOutputs(cbi[1], partFile, fullFile));
+                case FIELD_JOBS, FIELD_NEEDS -> completionItemMap.put(i, listJobOutputs(cbi[1], context));
+                case FIELD_STEPS -> completionItemMap.put(i, listStepOutputs(cbi[1], context));
                 default -> {
                 }
             }
@@ -173,6 +139,6 @@ public class GitHubWorkflowCompletionContributor extends CompletionContributor {
 
     @NotNull
     private static List<LookupElement> toLookupItems(final List<CompletionItem> items) {
-        return items.stream().map(CompletionItem::toLookupElement).collect(Collectors.toList());
+        return PluginMetrics.time(PluginMetrics.Timer.LOOKUP_BUILD, () -> items.stream().map(CompletionItem::toLookupElement).collect(Collectors.toList()));
     }
 }
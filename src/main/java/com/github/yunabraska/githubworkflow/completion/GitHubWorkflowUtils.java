@@ -1,62 +1,44 @@
 package com.github.yunabraska.githubworkflow.completion;
 
-import com.github.yunabraska.githubworkflow.model.DownloadException;
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
 import com.intellij.codeInsight.completion.CompletionParameters;
 import com.intellij.codeInsight.completion.CompletionResultSet;
 import com.intellij.codeInsight.completion.InsertionContext;
+import com.intellij.codeInsight.completion.PrefixMatcher;
 import com.intellij.codeInsight.completion.PrioritizedLookupElement;
 import com.intellij.codeInsight.lookup.AutoCompletionPolicy;
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
-import com.intellij.json.JsonFileType;
-import com.intellij.openapi.application.ApplicationInfo;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.util.PsiUtilCore;
-import com.intellij.testFramework.LightVirtualFile;
-import com.intellij.util.io.HttpRequests;
 import org.jetbrains.yaml.YAMLFileType;
-import org.yaml.snakeyaml.Yaml;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Future;
-import java.util.function.Supplier;
-import java.util.regex.Matcher;
-import java.util.stream.Collectors;
 
-import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.CACHE_ONE_DAY;
-import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.PATTERN_GITHUB_ENV;
-import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.PATTERN_GITHUB_OUTPUT;
 import static java.util.Optional.ofNullable;
 
 public class GitHubWorkflowUtils {
 
-    public static final Path TMP_DIR = Paths.get(System.getProperty("java.io.tmpdir"), "ide_github_workflow_plugin");
     private static final Logger LOG = Logger.getInstance(GitHubWorkflowUtils.class);
 
     private GitHubWorkflowUtils() {
     }
 
-    public static Optional<String[]> getCaretBracketItem(final CompletionParameters parameters, final Supplier<WorkflowFile> part, final String[] prefix) {
+    public static Optional<String[]> getCaretBracketItem(final CompletionParameters parameters, final CompletionContext context, final String[] prefix) {
         final String wholeText = parameters.getOriginalFile().getText();
         final int caretOffset = parameters.getOffset();
         final String offsetText = wholeText.substring(0, caretOffset);
         final int bracketStart = offsetText.lastIndexOf("${{");
-        if (caretOffset > 2 && isInBrackets(offsetText, bracketStart) || "if".equals(part.get().getCurrentNode().name())) {
+        if (caretOffset > 2 && isInBrackets(offsetText, bracketStart) || context.currentNode().hasName("if")) {
             final char previousChar = wholeText.charAt(caretOffset - 1);
             if (caretOffset > 1 && previousChar == '.') {
                 //NEXT ELEMENT
@@ -115,47 +97,33 @@ public class GitHubWorkflowUtils {
     }
 
     public static String getDescription(final YamlNode n) {
-        return n.getChild("required").map(YamlNode::value).map(required -> "req[" + required + "] ").orElse("")
-                + n.getChild("default").map(YamlNode::value).map(def -> "def[" + def + "] ").orElse("")
-                + n.getChild("description").map(YamlNode::value).orElse("");
+        return ofNullable(n.getChildValue("required")).map(required -> "req[" + required + "] ").orElse("")
+                + ofNullable(n.getChildValue("default")).map(def -> "def[" + def + "] ").orElse("")
+                + orEmpty(n.getChildValue("description"));
     }
 
     public static Map<String, String> toGithubOutputs(final String text) {
-        final Map<String, String> variables = new HashMap<>();
-        if (text.contains("$GITHUB_OUTPUT") || text.contains("${GITHUB_OUTPUT}")) {
-            final Matcher matcher = PATTERN_GITHUB_OUTPUT.matcher(text);
-            while (matcher.find()) {
-                if (matcher.groupCount() >= 2) {
-                    variables.put(matcher.group(1), matcher.group(2));
-                }
-            }
-        }
-        return variables;
+        return RunScriptScanner.scan(text).outputs();
     }
 
     public static Map<String, String> toGithubEnvs(final String text) {
-        final Map<String, String> variables = new HashMap<>();
-        if (text.contains("GITHUB_ENV") || text.contains("${GITHUB_ENV}")) {
-            final Matcher matcher = PATTERN_GITHUB_ENV.matcher(text);
-            while (matcher.find()) {
-                if (matcher.groupCount() >= 2) {
-                    variables.put(matcher.group(1), matcher.group(2));
-                }
-            }
-        }
-        return variables;
+        return RunScriptScanner.scan(text).envs();
     }
 
     public static void addLookupElements(final CompletionResultSet resultSet, final Map<String, String> map, final NodeIcon icon, final char suffix) {
         if (!map.isEmpty()) {
-            resultSet.addAllElements(toLookupElements(map, icon, suffix));
+            //PRE-FILTER, LOOKUP ELEMENTS ONLY FOR POSSIBLE MATCHES
+            final long start = PluginMetrics.start();
+            final PrefixMatcher matcher = resultSet.getPrefixMatcher();
+            map.forEach((key, text) -> {
+                if (matcher.prefixMatches(key)) {
+                    resultSet.addElement(toLookupElement(icon, suffix, key, text));
+                }
+            });
+            PluginMetrics.record(PluginMetrics.Timer.LOOKUP_BUILD, start);
         }
     }
 
-    public static List<LookupElement> toLookupElements(final Map<String, String> map, final NodeIcon icon, final char suffix) {
-        return map.entrySet().stream().map(item -> toLookupElement(icon, suffix, item.getKey(), item.getValue())).collect(Collectors.toList());
-    }
-
     public static LookupElement toLookupElement(final NodeIcon icon, final char suffix, final String key, final String text) {
         LookupElementBuilder result = LookupElementBuilder
                 .create(key)
@@ -202,88 +170,6 @@ public class GitHubWorkflowUtils {
         ctx.commitDocument();
     }
 
-    public static VirtualFile downloadSchema(final String url, final String name) {
-        try {
-            final Path path = TMP_DIR.resolve(name + "_schema.json");
-            final VirtualFile newVirtualFile = new LightVirtualFile("github_workflow_plugin_" + path.getFileName().toString(), JsonFileType.INSTANCE, "");
-            //FIXME: how to use the intellij idea cache?
-            VfsUtil.saveText(newVirtualFile, downloadContent(() -> downloadContent(url), path, CACHE_ONE_DAY * 30));
-            return newVirtualFile;
-        } catch (Exception ignored) {
-            return null;
-        }
-    }
-
-    public static String downloadAction(Supplier<String> downloader, final GitHubAction gitHubAction) {
-        return downloadContent(downloader, TMP_DIR.resolve(gitHubAction.toString() + "_schema.json"), CACHE_ONE_DAY * 14);
-    }
-
-    public static String downloadContent(Supplier<String> downloader, final Path path, final long expirationTime) {
-        try {
-            return downloadContentAsync(downloader, path, expirationTime).get();
-        } catch (Exception e) {
-            throw new DownloadException(e);
-        }
-    }
-
-    // FIXME: using event and listener
-    private static Future<String> downloadContentAsync(Supplier<String> downloader, final Path path, final long expirationTime) {
-
-        return ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            try {
-                if (Files.exists(path) && (expirationTime < 1 || Files.getLastModifiedTime(path).toMillis() > System.currentTimeMillis() - expirationTime)) {
-                    LOG.info("Cache load [" + path + "] expires in [" + (System.currentTimeMillis() - expirationTime) + "ms]");
-                    return readFileAsync(path).get();
-                } else {
-                    if (!Files.exists(path.getParent())) {
-                        Files.createDirectories(path.getParent());
-                    }
-                    final String content = downloader.get();
-                    if (content == null) {
-                        return "";
-                    }
-                    Files.write(path, content.getBytes());
-                    return content;
-                }
-            } catch (Exception e) {
-                LOG.error("Cache failed for [" + path + "] message [" + e.getClass().getName() + "]", e);
-                return "";
-            }
-        });
-    }
-
-    public static Future<String> readFileAsync(final Path path) {
-        return ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            try (final BufferedReader reader = Files.newBufferedReader(path, Charset.defaultCharset())) {
-                final StringBuilder contentBuilder = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    contentBuilder.append(line).append(System.lineSeparator());
-                }
-                return contentBuilder.toString();
-            } catch (IOException e) {
-                LOG.error("Failed to read file [" + path + "] message [" + e.getMessage() + "]", e);
-                return "";
-            }
-        });
-    }
-
-    private static String downloadContent(final String urlString) {
-        LOG.info("Download [" + urlString + "]");
-        try {
-            final ApplicationInfo applicationInfo = ApplicationInfo.getInstance();
-            return ApplicationManager.getApplication().executeOnPooledThread(() -> HttpRequests
-                    .request(urlString)
-                    .gzip(true)
-                    .readTimeout(5000)
-                    .connectTimeout(5000)
-                    .userAgent(applicationInfo.getBuild().getProductCode() + "/" + applicationInfo.getFullVersion()).tuner(request -> request.setRequestProperty("Client-Name", "GitHub Workflow Plugin")).readString()).get();
-        } catch (Exception e) {
-            LOG.error("Download failed for [" + urlString + "] message [" + e.getClass().getName() + "]", e);
-        }
-        return "";
-    }
-
     public static Optional<Path> getWorkflowFile(final PsiElement psiElement) {
         return Optional.ofNullable(PsiUtilCore.getVirtualFile(psiElement))
 //                .filter(GitHubWorkflowUtils::isYamlFile) // unnecessary complicate confine to YAML
@@ -291,7 +177,9 @@ public class GitHubWorkflowUtils {
                 .map(Paths::get)
                 .filter(path -> {
                     boolean isWorkflowPath = GitHubWorkflowUtils.isWorkflowPath(path);
-                    LOG.info("path: [" + path + "]" + ", is Workflow path: " + isWorkflowPath);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("path: [" + path + "]" + ", is Workflow path: " + isWorkflowPath);
+                    }
                     return isWorkflowPath;
                 });
     }
@@ -299,7 +187,7 @@ public class GitHubWorkflowUtils {
     @SuppressWarnings("unused")
     public static void yamlOf(final Path path) {
         try (final FileReader fileReader = new FileReader(path.toFile())) {
-            processYamlElement(new Yaml().load(fileReader));
+            processYamlElement(YamlLoader.load(fileReader));
         } catch (IOException ignored) {
             //ignored
         }
@@ -326,6 +214,10 @@ public class GitHubWorkflowUtils {
                 && path.getName(path.getNameCount() - 3).toString().equalsIgnoreCase(".github");
     }
 
+    public static boolean isActionFileName(final String fileName) {
+        return "action.yml".equalsIgnoreCase(fileName) || "action.yaml".equalsIgnoreCase(fileName);
+    }
+
     public static boolean isYamlFile(final VirtualFile virtualFile) {
         return YAMLFileType.YML.equals(virtualFile.getFileType());
     }
@@ -0,0 +1,307 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.RUN_SCRIPT_CACHE;
+
+/**
+ * Extracts the {@code GITHUB_OUTPUT} and {@code GITHUB_ENV} assignments of a `run` script in one pass over its lines.
+ * <p>
+ * Supported are {@code echo} (quoted or not) and {@code printf} redirected with {@code >> $GITHUB_OUTPUT}, {@code >> "${GITHUB_ENV}"} etc.,
+ * the multiline {@code name<<DELIMITER} syntax, shell heredocs ({@code cat <<EOF >> $GITHUB_OUTPUT}) and command groups ({@code { ...; } >> $GITHUB_ENV}).
+ * Results are cached by script content, unchanged steps are never rescanned.
+ */
+public final class RunScriptScanner {
+
+    private static final String GITHUB_OUTPUT = "GITHUB_OUTPUT";
+    private static final String GITHUB_ENV = "GITHUB_ENV";
+
+    private final Map<String, String> outputs = new HashMap<>();
+    private final Map<String, String> envs = new HashMap<>();
+    //OPEN MULTILINE VALUE PER TARGET
+    private final Map<String, Multiline> multilines = new HashMap<>();
+    //OPEN SHELL HEREDOC OR COMMAND GROUP
+    private String heredocDelimiter;
+    private String heredocTarget;
+    private List<String> group;
+
+    /**
+     * @param outputs step outputs, written to {@code GITHUB_OUTPUT}
+     * @param envs    environment variables, written to {@code GITHUB_ENV}
+     */
+    public record Assignments(Map<String, String> outputs, Map<String, String> envs) {
+    }
+
+    private static final class Multiline {
+        private final String name;
+        private final String delimiter;
+        private final StringBuilder value = new StringBuilder();
+
+        private Multiline(final String name, final String delimiter) {
+            this.name = name;
+            this.delimiter = delimiter;
+        }
+    }
+
+    private RunScriptScanner() {
+    }
+
+    public static Assignments scan(final String script) {
+        if (script == null || (!script.contains(GITHUB_OUTPUT) && !script.contains(GITHUB_ENV))) {
+            return new Assignments(Map.of(), Map.of());
+        }
+        final Assignments cached = RUN_SCRIPT_CACHE.get(script);
+        if (cached != null) {
+            return cached;
+        }
+        final RunScriptScanner scanner = new RunScriptScanner();
+        int start = 0;
+        while (start <= script.length()) {
+            final int end = script.indexOf('\n', start);
+            final int lineEnd = end == -1 ? script.length() : end;
+            scanner.onLine(script.substring(start, lineEnd > start && script.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd));
+            start = lineEnd + 1;
+        }
+        final Assignments result = new Assignments(Map.copyOf(scanner.outputs), Map.copyOf(scanner.envs));
+        RUN_SCRIPT_CACHE.put(script, result);
+        return result;
+    }
+
+    private void onLine(final String line) {
+        final String trimmed = line.trim();
+        if (heredocDelimiter != null) {
+            if (trimmed.equals(heredocDelimiter)) {
+                heredocDelimiter = null;
+                heredocTarget = null;
+            } else {
+                onPayload(heredocTarget, line);
+            }
+            return;
+        }
+        if (group != null) {
+            if (trimmed.startsWith("}")) {
+                final String target = targetOf(trimmed, 1);
+                if (target != null) {
+                    group.forEach(command -> onCommand(target, command));
+                }
+                group = null;
+            } else {
+                group.add(trimmed);
+            }
+            return;
+        }
+        if (trimmed.equals("{")) {
+            group = new ArrayList<>();
+            return;
+        }
+        final int redirect = indexOfRedirect(trimmed);
+        if (redirect == -1) {
+            return;
+        }
+        final String target = targetOf(trimmed, redirect);
+        if (target == null) {
+            return;
+        }
+        final String command = trimmed.substring(commandStart(trimmed, redirect), redirect).trim();
+        if (command.startsWith("{") && command.endsWith("}")) {
+            //SINGLE LINE GROUP
+            for (String part : splitCommands(command.substring(1, command.length() - 1))) {
+                onCommand(target, part);
+            }
+        } else {
+            onCommand(target, command);
+        }
+    }
+
+    private void onCommand(final String target, final String command) {
+        String[] words = command.trim().split("\\s+", 2);
+        while (words.length == 2 && (words[0].equals("then") || words[0].equals("else") || words[0].equals("do"))) {
+            //E.G. `if ...; then echo "a=b" >> $GITHUB_OUTPUT; fi`
+            words = words[1].split("\\s+", 2);
+        }
+        if (words.length < 2) {
+            //E.G. BARE `echo` OR `}`
+            return;
+        }
+        switch (words[0]) {
+            case "echo" -> onPayload(target, unquote(skipFlags(words[1])));
+            case "printf" -> onPayload(target, printfFormat(skipFlags(words[1])));
+            case "cat" -> {
+                final int heredoc = words[1].indexOf("<<");
+                if (heredoc != -1) {
+                    heredocDelimiter = unquote(words[1].substring(heredoc + 2).replaceFirst("^-", "").trim().split("\\s+", 2)[0]);
+                    heredocTarget = target;
+                }
+            }
+            default -> {
+                //NOT AN ASSIGNMENT
+            }
+        }
+    }
+
+    private void onPayload(final String target, final String payload) {
+        final Multiline multiline = multilines.get(target);
+        if (multiline != null) {
+            if (payload.trim().equals(multiline.delimiter)) {
+                multilines.remove(target);
+                put(target, multiline.name, multiline.value.toString());
+            } else {
+                multiline.value.append(multiline.value.length() == 0 ? "" : "\n").append(payload);
+            }
+            return;
+        }
+        final int assign = payload.indexOf('=');
+        final int heredoc = payload.indexOf("<<");
+        if (heredoc > 0 && (assign == -1 || heredoc < assign)) {
+            final String name = payload.substring(0, heredoc).trim();
+            if (isName(name)) {
+                multilines.put(target, new Multiline(name, payload.substring(heredoc + 2).trim()));
+            }
+        } else if (assign > 0) {
+            final String name = payload.substring(0, assign).trim();
+            if (isName(name)) {
+                put(target, name, payload.substring(assign + 1));
+            }
+        }
+    }
+
+    private void put(final String target, final String name, final String value) {
+        (GITHUB_OUTPUT.equals(target) ? outputs : envs).put(name, value);
+    }
+
+    /**
+     * @return {@link #GITHUB_OUTPUT}, {@link #GITHUB_ENV} or null if the redirect at the given index writes somewhere else
+     */
+    private static String targetOf(final String line, final int from) {
+        final int redirect = line.indexOf(">>", from);
+        if (redirect == -1) {
+            return null;
+        }
+        int i = redirect + 2;
+        while (i < line.length() && (Character.isWhitespace(line.charAt(i)) || line.charAt(i) == '"' || line.charAt(i) == '$' || line.charAt(i) == '{')) {
+            i++;
+        }
+        if (line.startsWith(GITHUB_OUTPUT, i)) {
+            return GITHUB_OUTPUT;
+        }
+        return line.startsWith(GITHUB_ENV, i) ? GITHUB_ENV : null;
+    }
+
+    /**
+     * @return index of the first {@code >>} outside of quotes or -1
+     */
+    private static int indexOfRedirect(final String line) {
+        char quote = 0;
+        for (int i = 0; i < line.length() - 1; i++) {
+            final char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else if (c == '\\' && quote == '"') {
+                    i++;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>' && line.charAt(i + 1) == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return start of the last command before the redirect, after {@code ;}, {@code &&}, {@code ||} outside of quotes and braces
+     */
+    private static int commandStart(final String line, final int redirect) {
+        char quote = 0;
+        int braces = 0;
+        int result = 0;
+        for (int i = 0; i < redirect; i++) {
+            final char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '{') {
+                braces++;
+            } else if (c == '}') {
+                braces--;
+            } else if (braces == 0 && (c == ';' || ((c == '&' || c == '|') && i + 1 < redirect && line.charAt(i + 1) == c))) {
+                result = c == ';' ? i + 1 : i + 2;
+            }
+        }
+        return result;
+    }
+
+    private static List<String> splitCommands(final String commands) {
+        final List<String> result = new ArrayList<>();
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < commands.length(); i++) {
+            final char c = commands.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == ';') {
+                result.add(commands.substring(start, i));
+                start = i + 1;
+            }
+        }
+        result.add(commands.substring(start));
+        return result;
+    }
+
+    private static String skipFlags(final String arguments) {
+        String result = arguments.trim();
+        while (result.startsWith("-") && !result.startsWith("--")) {
+            final int space = result.indexOf(' ');
+            if (space == -1) {
+                return "";
+            }
+            result = result.substring(space + 1).trim();
+        }
+        return result.startsWith("-- ") ? result.substring(3).trim() : result;
+    }
+
+    /**
+     * @return first argument of printf without a trailing {@code \n}, format placeholders stay as they are
+     */
+    private static String printfFormat(final String arguments) {
+        final String format;
+        if (!arguments.isEmpty() && (arguments.charAt(0) == '"' || arguments.charAt(0) == '\'')) {
+            final int end = arguments.indexOf(arguments.charAt(0), 1);
+            format = end == -1 ? arguments.substring(1) : arguments.substring(1, end);
+        } else {
+            format = arguments.split("\\s+", 2)[0];
+        }
+        return format.endsWith("\\n") ? format.substring(0, format.length() - 2) : format;
+    }
+
+    private static String unquote(final String text) {
+        final String result = text.trim();
+        if (result.length() >= 2 && (result.charAt(0) == '"' || result.charAt(0) == '\'') && result.charAt(result.length() - 1) == result.charAt(0)) {
+            return result.substring(1, result.length() - 1);
+        }
+        return result;
+    }
+
+    private static boolean isName(final String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isWhitespace(name.charAt(i)) || name.charAt(i) == '"' || name.charAt(i) == '\'') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,249 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_INPUTS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_JOBS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_OUTPUTS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_SECRETS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_STEPS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_USES;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowUtils.orEmpty;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Call graph of the reusable workflows and actions referenced by `uses`, with the memoized `workflow_call` interface (inputs, outputs, secrets) per node.
+ * <p>
+ * Local nodes (`./...`) are parsed once from the {@link com.intellij.openapi.editor.Document} of their file, including unsaved changes.
+ * They stay valid until the document is edited or a VFS event touches the file (or a parent directory), which drops the node and all its transitive callers.
+ * The {@link LocalFileListener} is registered once for the application and only looks up the changed path in the files of the local nodes.
+ * Remote nodes are taken from the {@link GitHubAction} cache and stay valid until the cached action expires.
+ * Resolving a node registers its callees, remote callees are prefetched so that a whole `a -> b -> c` chain is warm before it is completed.
+ */
+@Service(Service.Level.PROJECT)
+public final class WorkflowCallGraph implements Disposable {
+
+    private static final Node MISSING = new Node(Map.of(), Map.of(), Map.of(), Set.of(), Long.MAX_VALUE);
+
+    private final Project myProject;
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    //CALLEE -> CALLERS
+    private final Map<String, Set<String>> callers = new ConcurrentHashMap<>();
+    //ABSOLUTE FILE PATH -> LOCAL USES READ FROM IT
+    private final Map<String, Set<String>> localFiles = new ConcurrentHashMap<>();
+
+    /**
+     * @param inputs     `with` parameters of the workflow or action
+     * @param outputs    outputs of the workflow or action
+     * @param secrets    secrets of a reusable workflow, empty for actions and remote workflows
+     * @param callees    `uses` of the jobs and steps
+     * @param expiration valid until, {@link Long#MAX_VALUE} for local nodes which are invalidated by file changes
+     */
+    public record Node(Map<String, String> inputs, Map<String, String> outputs, Map<String, String> secrets, Set<String> callees, long expiration) {
+    }
+
+    public WorkflowCallGraph(final Project project) {
+        this.myProject = project;
+    }
+
+    public static WorkflowCallGraph getInstance(final Project project) {
+        return project.getService(WorkflowCallGraph.class);
+    }
+
+    /**
+     * Never downloads.
+     *
+     * @param project project of the file which references the `uses`, null for files outside a project
+     * @return node of the given `uses`, empty node if it can't be resolved
+     */
+    public static Node nodeOf(final Project project, final String uses) {
+        if (uses == null || uses.isBlank()) {
+            return MISSING;
+        }
+        if (project == null || project.isDisposed()) {
+            //LOCAL FILES NEED A PROJECT
+            return uses.trim().charAt(0) == '.' ? MISSING : remoteNodeOf(null, uses.trim());
+        }
+        return getInstance(project).node(uses.trim());
+    }
+
+    public Node node(final String uses) {
+        final Node cached = nodes.get(uses);
+        if (cached != null && cached.expiration() >= System.currentTimeMillis()) {
+            return cached;
+        }
+        final boolean local = uses.charAt(0) == '.';
+        final Node result = local ? localNodeOf(uses) : remoteNodeOf(myProject, uses);
+        if (local) {
+            //MISSING FILES ARE TRACKED AS WELL, CREATING THE FILE INVALIDATES THEM
+            ofNullable(ProjectUtil.guessProjectDir(myProject)).ifPresent(root -> localFiles.computeIfAbsent(root.getPath() + "/" + GitHubAction.localPathOf(uses), key -> ConcurrentHashMap.newKeySet()).add(uses));
+        }
+        if (result.expiration() >= System.currentTimeMillis()) {
+            nodes.put(uses, result);
+        }
+        result.callees().forEach(callee -> {
+            callers.computeIfAbsent(callee, key -> ConcurrentHashMap.newKeySet()).add(uses);
+            if (local && callee.charAt(0) != '.') {
+                GitHubActionPrefetcher.resolveAsync(myProject, callee);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Invalidates the local workflows and actions read from the changed file or from below the changed directory.
+     */
+    private void onFileChanged(final String path, final boolean directory) {
+        if (localFiles.isEmpty()) {
+            return;
+        }
+        if (directory) {
+            localFiles.keySet().stream().filter(file -> isSameOrBelow(file, path)).toList().forEach(this::invalidateFile);
+        } else {
+            invalidateFile(path);
+        }
+    }
+
+    private void invalidateFile(final String path) {
+        final Set<String> usesList = localFiles.remove(path);
+        if (usesList != null) {
+            usesList.forEach(this::invalidate);
+        }
+    }
+
+    static boolean isSameOrBelow(final String path, final String parent) {
+        return path.equals(parent) || (path.startsWith(parent) && path.charAt(parent.length()) == '/');
+    }
+
+    /**
+     * Drops the node and all nodes calling it directly or transitively.
+     */
+    public void invalidate(final String uses) {
+        final Deque<String> queue = new ArrayDeque<>();
+        queue.add(uses);
+        while (!queue.isEmpty()) {
+            final String current = queue.poll();
+            nodes.remove(current);
+            //REMOVED EDGES ALSO END CYCLES
+            final Set<String> callersOf = callers.remove(current);
+            if (callersOf != null) {
+                queue.addAll(callersOf);
+            }
+        }
+    }
+
+    private Node localNodeOf(final String uses) {
+        final String content = GitHubAction.readLocalFile(myProject, GitHubAction.localPathOf(uses));
+        return content == null ? MISSING : nodeOf(WorkflowFile.workflowFileOf(content).yaml(), !uses.contains("/workflows/"));
+    }
+
+    private static Node remoteNodeOf(final Project project, final String uses) {
+        final GitHubAction action = GitHubAction.getCachedGitHubAction(project, uses);
+        return new Node(Map.copyOf(action.inputs()), Map.copyOf(action.outputs()), Map.of(), Set.of(), action.expiration());
+    }
+
+    private static Node nodeOf(final YamlNode yaml, final boolean isAction) {
+        //`on` IS READ AS BOOLEAN BY YAML 1.1 PARSERS
+        final YamlNode declaration = isAction ? yaml : yaml.getChild("on").or(() -> yaml.getChild("true"))
+                .flatMap(trigger -> trigger.getChild("workflow_call"))
+                .orElseGet(YamlNode::empty);
+        final Set<String> callees = new LinkedHashSet<>();
+        if (isAction) {
+            yaml.getChild("runs").flatMap(runs -> runs.getChild(FIELD_STEPS)).ifPresent(steps -> steps.children().forEach(step -> addUses(step, callees)));
+        } else {
+            yaml.getChild(FIELD_JOBS).ifPresent(jobs -> jobs.children().forEach(job -> {
+                addUses(job, callees);
+                job.getChild(FIELD_STEPS).ifPresent(steps -> steps.children().forEach(step -> addUses(step, callees)));
+            }));
+        }
+        return new Node(
+                parametersOf(declaration, FIELD_INPUTS),
+                parametersOf(declaration, FIELD_OUTPUTS),
+                isAction ? Map.of() : parametersOf(declaration, FIELD_SECRETS),
+                Set.copyOf(callees),
+                Long.MAX_VALUE
+        );
+    }
+
+    private static void addUses(final YamlNode jobOrStep, final Set<String> callees) {
+        final String uses = jobOrStep.getChildValue(FIELD_USES);
+        if (uses != null && !uses.isBlank()) {
+            callees.add(uses.trim());
+        }
+    }
+
+    private static Map<String, String> parametersOf(final YamlNode declaration, final String field) {
+        final Map<String, String> result = new HashMap<>();
+        declaration.getChild(field).ifPresent(parameters -> parameters.children().forEach(parameter -> result.put(orEmpty(parameter.name()), GitHubWorkflowUtils.getDescription(parameter))));
+        return Map.copyOf(result);
+    }
+
+    @Override
+    public void dispose() {
+        nodes.clear();
+        callers.clear();
+        localFiles.clear();
+    }
+
+    /**
+     * Forwards VFS events and document changes to the call graphs of the open projects, registered once in the plugin.xml.
+     * Graphs which were never used are not created, each graph only looks up the path in the files of its local nodes.
+     */
+    public static final class LocalFileListener implements BulkFileListener, DocumentListener {
+
+        @Override
+        public void after(@NotNull final List<? extends VFileEvent> events) {
+            for (VFileEvent event : events) {
+                final boolean directory = event.getFile() != null && event.getFile().isDirectory();
+                onFileChanged(event.getPath(), directory);
+                if (event instanceof VFileMoveEvent move) {
+                    onFileChanged(move.getOldPath(), directory);
+                } else if (event instanceof VFilePropertyChangeEvent rename && rename.isRename()) {
+                    onFileChanged(rename.getOldPath(), directory);
+                }
+            }
+        }
+
+        @Override
+        public void documentChanged(@NotNull final DocumentEvent event) {
+            final VirtualFile file = FileDocumentManager.getInstance().getFile(event.getDocument());
+            if (file != null) {
+                onFileChanged(file.getPath(), false);
+            }
+        }
+
+        private static void onFileChanged(final String path, final boolean directory) {
+            if (path == null) {
+                return;
+            }
+            for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+                final WorkflowCallGraph graph = project.isDisposed() ? null : project.getServiceIfCreated(WorkflowCallGraph.class);
+                if (graph != null) {
+                    graph.onFileChanged(path, directory);
+                }
+            }
+        }
+    }
+}
@@ -1,62 +1,124 @@
 package com.github.yunabraska.githubworkflow.completion;
 
-import org.yaml.snakeyaml.Yaml;
-
+import com.github.yunabraska.githubworkflow.index.WorkflowSymbolIndex;
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import org.jetbrains.yaml.psi.YAMLDocument;
+import org.jetbrains.yaml.psi.YAMLFile;
+import org.jetbrains.yaml.psi.YAMLKeyValue;
+import org.jetbrains.yaml.psi.YAMLSequence;
+import org.jetbrains.yaml.psi.YAMLSequenceItem;
+
+import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_JOBS;
 import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_OUTPUTS;
 import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_STEPS;
 import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_USES;
-import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.WORKFLOW_CACHE;
 import static java.util.Optional.ofNullable;
 
 public class WorkflowFile {
+    private static final Key<CachedValue<YamlNode>> WORKFLOW_MODEL = Key.create("github.workflow.model");
     private final YamlNode yaml;
+    private final Supplier<Optional<Map<String, Map<String, String>>>> symbols;
+    private final Project project;
     private YamlNode currentNode;
+    private int caretOffset = -1;
 
     protected WorkflowFile(final YamlNode yaml) {
+        this(yaml, Optional::empty, null);
+    }
+
+    private WorkflowFile(final YamlNode yaml, final Supplier<Optional<Map<String, Map<String, String>>>> symbols, final Project project) {
         this.yaml = yaml;
+        this.symbols = symbols;
+        this.project = project;
     }
 
-    public static WorkflowFile workflowFileOf(final String key, final String text) {
+    /**
+     * Parses the given text, invalid YAML results in an empty model.
+     */
+    public static WorkflowFile workflowFileOf(final String text) {
+        final long start = PluginMetrics.start();
         try {
-            final WorkflowFile workflowFile = YamlNode.yamlNodeOf(null, null, new Yaml().load(text), 0).toWorkflowFile();
-            if (key != null) {
-                WORKFLOW_CACHE.put(key, workflowFile);
-            }
-            return workflowFile;
+            return ofNullable(YamlNode.yamlNodeOf(new StringReader(text))).orElseGet(YamlNode::empty).toWorkflowFile();
         } catch (Exception e) {
-            final WorkflowFile defaultValue = new YamlNode(null, null, null, 0).toWorkflowFile();
-            return key == null ? defaultValue : WORKFLOW_CACHE.getOrDefault(key, defaultValue);
+            return YamlNode.empty().toWorkflowFile();
+        } finally {
+            PluginMetrics.record(PluginMetrics.Timer.PARSE, start);
         }
     }
 
-    private static YamlNode getLastChild(final YamlNode yamlNode) {
-        if (yamlNode.children().isEmpty()) {
-            return yamlNode;
+    /**
+     * Returns a view over the model of the given file. The model is built from the YAML PSI and cached until the file changes.
+     */
+    public static WorkflowFile workflowFileOf(final PsiFile psiFile) {
+        final YamlNode yaml = CachedValuesManager.getCachedValue(psiFile, WORKFLOW_MODEL, () -> CachedValueProvider.Result.create(
+                psiFile instanceof YAMLFile yamlFile ? PluginMetrics.time(PluginMetrics.Timer.PARSE, () -> YamlNode.yamlNodeOf(yamlFile)) : YamlNode.empty(),
+                psiFile
+        ));
+        final AtomicReference<Optional<Map<String, Map<String, String>>>> symbolCache = new AtomicReference<>(null);
+        return new WorkflowFile(yaml, () -> {
+            if (symbolCache.get() == null) {
+                symbolCache.set(WorkflowSymbolIndex.symbolsOf(psiFile));
+            }
+            return symbolCache.get();
+        }, psiFile.getProject());
+    }
+
+    /**
+     * Follows the keys and sequence items enclosing the PSI element down the model.
+     * The element can come from the completion copy of the file, as only key texts and item positions are used.
+     * Stops at the deepest node the model knows, e.g. the parent of a key which is being typed.
+     */
+    private static YamlNode getNodeAt(final YamlNode root, final PsiElement element) {
+        final Deque<PsiElement> path = new ArrayDeque<>();
+        for (PsiElement current = element; current != null && !(current instanceof YAMLDocument) && !(current instanceof PsiFile); current = current.getParent()) {
+            if (current instanceof YAMLKeyValue || current instanceof YAMLSequenceItem) {
+                path.push(current);
+            }
         }
-        return getLastChild(yamlNode.children().get(yamlNode.children().size() - 1));
-    }
-
-    private static Optional<YamlNode> getAnyChild(final YamlNode yamlNode, final Predicate<YamlNode> filter) {
-        if (filter.test(yamlNode)) {
-            return Optional.of(yamlNode);
-        } else {
-            return yamlNode.children().stream().map(child -> getAnyChild(child, filter).orElse(null)).filter(Objects::nonNull).findFirst();
+        YamlNode result = root;
+        for (PsiElement current : path) {
+            final Optional<YamlNode> child = current instanceof YAMLKeyValue keyValue
+                    ? result.getChild(keyValue.getKeyText())
+                    : result.getChildByIndex(itemIndexOf((YAMLSequenceItem) current));
+            if (child.isEmpty()) {
+                break;
+            }
+            result = child.get();
         }
+        return result;
     }
 
-    private static Optional<YamlNode> getParent(final YamlNode yamlNode, final Predicate<YamlNode> filter) {
-        if (filter.test(yamlNode)) {
-            return Optional.of(yamlNode);
-        } else if (yamlNode.parent() != null) {
-            return getParent(yamlNode.parent(), filter);
-        } else {
-            return Optional.empty();
+    /**
+     * @return index of the item like in {@link YamlNode}, where items without value are skipped
+     */
+    private static int itemIndexOf(final YAMLSequenceItem item) {
+        if (!(item.getParent() instanceof YAMLSequence sequence)) {
+            return -1;
+        }
+        int index = 0;
+        for (YAMLSequenceItem sibling : sequence.getItems()) {
+            if (sibling == item) {
+                return index;
+            }
+            if (sibling.getValue() != null) {
+                index++;
+            }
         }
+        return -1;
     }
 
     public boolean isOutputTriggerNode() {
@@ -67,79 +129,60 @@ public class WorkflowFile {
                 .filter(node -> node.hasParent("on") || node.hasParent("true")).isPresent();
     }
 
-    public boolean isOutputJobNode() {
-        return getCurrentNode().hasParent(FIELD_OUTPUTS);
-    }
-
-    public Optional<WorkflowFile> getParentJob(final WorkflowFile fullContext) {
-        return getParent(node -> node.hasParent(FIELD_JOBS))
-                .map(job -> fullContext == null ? job : fullContext.getJobById(job.name()).orElse(job))
-                .map(YamlNode::toWorkflowFile);
-    }
-
-    public Optional<WorkflowFile> getParentStep(final WorkflowFile fullContext) {
-        return getParent(node -> node.hasParent(FIELD_STEPS))
-                .map(step -> fullContext == null
-                        ? step
-                        : step.toWorkflowFile().getParentJob(null)
-                        .flatMap(job -> fullContext.getJobById(job.yaml().name()))
-                        .flatMap(job -> job.toWorkflowFile().getStepByIndex(step.index()))
-                        .orElse(step))
-                .map(YamlNode::toWorkflowFile);
-    }
-
     public List<YamlNode> children() {
-        return ofNullable(yaml).map(node -> node.children).orElse(new ArrayList<>());
+        return ofNullable(yaml).map(YamlNode::children).orElse(new ArrayList<>());
     }
 
     public Map<String, String> nodesToMap(final String nodeName, final Predicate<YamlNode> childFilter, final Function<YamlNode, String> key, final Function<YamlNode, String> value) {
         //HashMap cause of duplication possibilities
         final Map<String, String> result = new HashMap<>();
-        this.yaml().getAllChildren(inputs -> nodeName.equals(inputs.name)).stream()
-                .flatMap(inputs -> inputs.children.stream())
+        this.yaml().getAllChildren(inputs -> inputs.hasName(nodeName)).stream()
+                .flatMap(inputs -> inputs.children().stream())
                 .filter(childFilter)
                 .forEach(node -> result.put(key.apply(node), value.apply(node)));
         return result;
     }
 
     public Optional<Map<String, String>> getActionOutputs(final String jobId, final String stepId) {
-        return getStepById(jobId, stepId).flatMap(step -> step.getChild(FIELD_USES)
-                .map(YamlNode::value)
-                .map(GitHubAction::getGitHubAction)
-                .map(GitHubAction::outputs)
-        );
+        final Optional<String> uses = symbols(WorkflowSymbolIndex.jobKey(jobId, WorkflowSymbolIndex.KEY_STEP_USES))
+                .map(stepUses -> ofNullable(stepUses.get(stepId)))
+                .orElseGet(() -> getStepById(jobId, stepId).map(step -> step.getChildValue(FIELD_USES)));
+        return uses
+                .map(value -> WorkflowCallGraph.nodeOf(project, value))
+                .map(WorkflowCallGraph.Node::outputs);
+    }
+
+    /**
+     * @return indexed symbols for the given {@link WorkflowSymbolIndex} key or empty if the index can't answer (not indexed, dumb mode, no file)
+     */
+    public Optional<Map<String, String>> symbols(final String key) {
+        return symbols.get().map(data -> data.getOrDefault(key, Collections.emptyMap()));
     }
 
     public Optional<YamlNode> getStepById(final String jobId, final String stepId) {
         return stepId == null ? Optional.empty() : getJobById(jobId)
                 .flatMap(job -> job.getChild(FIELD_STEPS))
-                .flatMap(steps -> steps.children().stream().filter(step -> stepId.equals(step
-                        .getChild("id")
-                        .map(YamlNode::value)
-                        .orElse(null)
-                )).findFirst());
-    }
-
-    public Optional<YamlNode> getStepByIndex(final int index) {
-        return getLastChild(yaml()).toWorkflowFile().getParentJob(null)
-                .flatMap(job -> job.yaml().getChild(FIELD_STEPS))
-                .flatMap(steps -> steps.getChildByIndex(index));
+                .flatMap(steps -> steps.children().stream().filter(step -> stepId.equals(step.getChildValue("id"))).findFirst());
     }
 
     public Optional<YamlNode> getJobById(final String jobId) {
-        return getAnyChild(yaml(), jobNode -> jobId != null && jobId.equals(jobNode.name()) && jobNode.hasParent(FIELD_JOBS));
+        return jobId == null ? Optional.empty() : yaml().getChild(FIELD_JOBS).flatMap(jobs -> jobs.getChild(jobId));
     }
 
+    /**
+     * @return inputs of the action or workflow used by the `with` block at the caret, empty without caret
+     */
     public Optional<Map<String, String>> getActionInputs() {
-        // FIXME: over the `with: xxx` type will cause error behavior
-        final YamlNode lastChild = getLastChild(yaml());
+        if (caretOffset < 0) {
+            return Optional.empty();
+        }
+        final YamlNode lastChild = getCurrentNode();
         final YamlNode withChild = Optional.of(lastChild).filter(n -> "with".equals(n.name())).orElseGet(() -> Optional.ofNullable(lastChild.parent()).filter(n -> "with".equals(n.name())).orElse(null));
         return ofNullable(withChild)
                 .map(YamlNode::parent)
-                .flatMap(n -> n.getChild(FIELD_USES))
-                .map(YamlNode::value)
-                .map(GitHubAction::getGitHubAction)
-                .map(GitHubAction::inputs)
+                .map(n -> n.getChildValue(FIELD_USES))
+                .map(value -> WorkflowCallGraph.nodeOf(project, value))
+                .map(WorkflowCallGraph.Node::inputs)
                 .filter(map -> !map.isEmpty());
     }
 
@@ -147,14 +190,49 @@ public class WorkflowFile {
         return yaml;
     }
 
-    public Optional<YamlNode> getParent(final Predicate<YamlNode> filter) {
-        return getParent(yaml(), filter);
+    /**
+     * @return project of the file, null for parsed text
+     */
+    public Project project() {
+        return project;
     }
 
-    public YamlNode getCurrentNode() {
-        if (currentNode == null) {
-            currentNode = getLastChild(this.yaml());
+    /**
+     * Same view, but with the current node set to the node enclosing the given PSI element, e.g. the completion position.
+     * The element can come from the completion copy of the file, its offset matches the original file as everything before the caret is the same.
+     */
+    public WorkflowFile atPosition(final PsiElement position) {
+        final long start = PluginMetrics.start();
+        final WorkflowFile result = new WorkflowFile(yaml, symbols, project);
+        result.currentNode = getNodeAt(yaml, position);
+        result.caretOffset = position.getTextRange().getStartOffset();
+        PluginMetrics.record(PluginMetrics.Timer.CARET, start);
+        return result;
+    }
+
+    /**
+     * Same view, but with the current node set to the innermost node whose text range contains the given offset.
+     * For models parsed from text without PSI, e.g. in tests and benchmarks.
+     */
+    public WorkflowFile atOffset(final int offset) {
+        final WorkflowFile result = new WorkflowFile(yaml, symbols, project);
+        YamlNode node = yaml;
+        for (Optional<YamlNode> child = childAt(node, offset); child.isPresent(); child = childAt(node, offset)) {
+            node = child.get();
         }
-        return currentNode;
+        result.currentNode = node;
+        result.caretOffset = offset;
+        return result;
+    }
+
+    private static Optional<YamlNode> childAt(final YamlNode node, final int offset) {
+        return node.children().stream().filter(child -> child.startOffset() <= offset && offset < child.endOffset()).findFirst();
+    }
+
+    /**
+     * @return node at the caret, the root if the view has no caret
+     */
+    public YamlNode getCurrentNode() {
+        return currentNode != null ? currentNode : yaml;
     }
 }
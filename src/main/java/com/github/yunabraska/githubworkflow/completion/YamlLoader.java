@@ -0,0 +1,73 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.representer.Representer;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.Reader;
+
+/**
+ * Shared SnakeYAML loader, one {@link Yaml} per thread as {@link Yaml} is not thread-safe and expensive to create.
+ * <p>
+ * Scalars stay plain strings (except null and merge keys), so `on: push` keeps its key "on" and `3.10` stays "3.10".
+ * Aliases, nesting and document size are limited, as downloaded actions are untrusted input.
+ * Limits can be changed with {@code -Dgithub.workflow.yaml.{aliases,nesting,codepoints}}.
+ */
+public final class YamlLoader {
+
+    public static final int MAX_ALIASES = Integer.getInteger("github.workflow.yaml.aliases", 50);
+    public static final int MAX_NESTING = Integer.getInteger("github.workflow.yaml.nesting", 64);
+    public static final int MAX_CODE_POINTS = Integer.getInteger("github.workflow.yaml.codepoints", 2 * 1024 * 1024);
+    private static final ThreadLocal<Yaml> YAML = ThreadLocal.withInitial(YamlLoader::newYaml);
+
+    private YamlLoader() {
+    }
+
+    public static Object load(final String text) {
+        return YAML.get().load(text);
+    }
+
+    public static Object load(final Reader reader) {
+        return YAML.get().load(reader);
+    }
+
+    /**
+     * Event stream of the text, see {@link YamlNodeBuilder}.
+     */
+    public static Iterable<Event> parse(final Reader reader) {
+        return YAML.get().parse(reader);
+    }
+
+    public static LoaderOptions loaderOptions() {
+        final LoaderOptions options = new LoaderOptions();
+        options.setMaxAliasesForCollections(MAX_ALIASES);
+        options.setNestingDepthLimit(MAX_NESTING);
+        options.setCodePointLimit(MAX_CODE_POINTS);
+        options.setAllowRecursiveKeys(false);
+        return options;
+    }
+
+    private static Yaml newYaml() {
+        final LoaderOptions loaderOptions = loaderOptions();
+        final DumperOptions dumperOptions = new DumperOptions();
+        return new Yaml(new SafeConstructor(loaderOptions), new Representer(dumperOptions), dumperOptions, loaderOptions, new PlainScalarResolver());
+    }
+
+    /**
+     * Only resolves null and merge keys, every other plain scalar stays a string.
+     */
+    private static final class PlainScalarResolver extends Resolver {
+
+        @Override
+        protected void addImplicitResolvers() {
+            addImplicitResolver(Tag.MERGE, MERGE, "<");
+            addImplicitResolver(Tag.NULL, NULL, "~nN\0");
+            addImplicitResolver(Tag.NULL, EMPTY, null);
+        }
+    }
+}
@@ -1,86 +1,120 @@
 package com.github.yunabraska.githubworkflow.completion;
 
-import org.yaml.snakeyaml.Yaml;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import org.jetbrains.yaml.psi.YAMLDocument;
+import org.jetbrains.yaml.psi.YAMLFile;
+import org.jetbrains.yaml.psi.YAMLKeyValue;
+import org.jetbrains.yaml.psi.YAMLMapping;
+import org.jetbrains.yaml.psi.YAMLScalar;
+import org.jetbrains.yaml.psi.YAMLSequence;
+import org.jetbrains.yaml.psi.YAMLSequenceItem;
+import org.jetbrains.yaml.psi.YAMLValue;
+import org.jetbrains.yaml.psi.impl.YAMLPlainTextImpl;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
-import static java.util.Optional.ofNullable;
+import static com.github.yunabraska.githubworkflow.completion.YamlTree.NO_NODE;
 
-@SuppressWarnings("unchecked")
+/**
+ * Lightweight cursor over a node of a {@link YamlTree}. Cursors are cheap to create and two cursors of the same node are equal.
+ */
 public class YamlNode {
-    protected final int index;
-    protected final String name;
-    protected final String value;
-    protected final YamlNode parent;
-    protected final List<YamlNode> children = new ArrayList<>();
-
-    protected YamlNode(
-            final String name,
-            final String value,
-            final YamlNode parent,
-            final int index
-    ) {
-        this.name = name;
-        this.value = value;
-        this.parent = parent;
-        this.index = index;
+    protected final YamlTree tree;
+    protected final int id;
+
+    protected YamlNode(final YamlTree tree, final int id) {
+        this.tree = tree;
+        this.id = id;
+    }
+
+    /**
+     * @return root of an empty tree
+     */
+    public static YamlNode empty() {
+        return YamlTree.EMPTY.root();
     }
 
     @SuppressWarnings("unused")
     public static YamlNode loadYaml(final Path path) {
         try (final FileReader fileReader = new FileReader(path.toFile())) {
-            return yamlNodeOf(new Yaml().load(fileReader));
+            return yamlNodeOf(fileReader);
         } catch (IOException ignored) {
             //ignored
         }
         return null;
     }
 
-    protected static YamlNode yamlNodeOf(final YamlNode parent, final Object key, final Object value, final int index) {
-        if (value instanceof Map) {
-            final YamlNode currentNode = new YamlNode(key == null ? null : key.toString(), null, parent, index);
-            currentNode.children.addAll(yamlNodesOf(currentNode, (Map<Object, Object>) value));
-            return currentNode;
-        }
-        if (value instanceof Collection) {
-            final YamlNode currentNode = new YamlNode(key == null ? null : key.toString(), null, parent, index);
-            currentNode.children.addAll(yamlNodesOf(currentNode, (Collection<Object>) value));
-            return currentNode;
+    /**
+     * Builds the node tree in a single pass from the YAML events, see {@link YamlNodeBuilder}.
+     *
+     * @return root node or null for an empty document
+     */
+    public static YamlNode yamlNodeOf(final Reader reader) {
+        return YamlNodeBuilder.yamlNodeOf(reader);
+    }
+
+    /**
+     * Builds the node tree from the YAML PSI the IDE already keeps up to date, so no text needs to be reparsed.
+     * Nodes keep the text range of their PSI element (key-value, sequence item or value).
+     */
+    public static YamlNode yamlNodeOf(final YAMLFile file) {
+        final List<YAMLDocument> documents = file.getDocuments();
+        final YAMLValue topLevelValue = documents.isEmpty() ? null : documents.get(0).getTopLevelValue();
+        final YamlTree.Builder builder = new YamlTree.Builder();
+        yamlNodeOf(builder, NO_NODE, null, topLevelValue, 0, topLevelValue == null ? file : topLevelValue);
+        return builder.build().root();
+    }
+
+    private static void yamlNodeOf(final YamlTree.Builder builder, final int parent, final String key, final YAMLValue value, final int index, final PsiElement source) {
+        final TextRange range = source.getTextRange();
+        if (value instanceof YAMLMapping mapping) {
+            final int currentNode = builder.add(parent, key, null, index, range.getStartOffset(), range.getEndOffset());
+            int childIndex = 0;
+            for (YAMLKeyValue keyValue : mapping.getKeyValues()) {
+                yamlNodeOf(builder, currentNode, keyValue.getKeyText(), keyValue.getValue(), childIndex++, keyValue);
+            }
+        } else if (value instanceof YAMLSequence sequence) {
+            final int currentNode = builder.add(parent, key, null, index, range.getStartOffset(), range.getEndOffset());
+            int childIndex = 0;
+            for (YAMLSequenceItem item : sequence.getItems()) {
+                final YAMLValue itemValue = item.getValue();
+                if (itemValue != null) {
+                    yamlNodeOf(builder, currentNode, null, itemValue, childIndex++, item);
+                }
+            }
+        } else {
+            builder.add(parent, key, scalarOf(value), index, range.getStartOffset(), range.getEndOffset());
         }
-        return new YamlNode(key == null ? null : key.toString(), value == null ? null : value.toString(), parent, index);
     }
 
-    private static YamlNode yamlNodeOf(final Object node) {
-        return yamlNodeOf(null, null, node, 0);
-    }
-
-    private static List<YamlNode> yamlNodesOf(final YamlNode parent, final Map<Object, Object> map) {
-        final AtomicInteger index = new AtomicInteger(0);
-        return map.entrySet().stream().map(item -> yamlNodeOf(parent, item.getKey(), item.getValue(), index.getAndIncrement())).collect(Collectors.toList());
-    }
-
-    private static List<YamlNode> yamlNodesOf(final YamlNode parent, final Collection<Object> collection) {
-        final AtomicInteger index = new AtomicInteger(0);
-        return collection.stream().filter(Objects::nonNull).map(item -> yamlNodeOf(parent, null, item, index.getAndIncrement())).collect(Collectors.toList());
+    private static String scalarOf(final YAMLValue value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof YAMLScalar scalar) {
+            final String text = scalar.getTextValue();
+            //SnakeYAML resolves these plain scalars to null
+            return scalar instanceof YAMLPlainTextImpl && ("~".equals(text) || "null".equals(text) || "Null".equals(text) || "NULL".equals(text)) ? null : text;
+        }
+        return value.getText();
     }
 
-    private static List<YamlNode> filterNodesRecursive(final YamlNode currentNode, final Predicate<YamlNode> filter, final List<YamlNode> resultNodes) {
+    private static List<YamlNode> filterNodesRecursive(final YamlTree tree, final int node, final Predicate<YamlNode> filter, final List<YamlNode> resultNodes) {
+        final YamlNode currentNode = new YamlNode(tree, node);
         if (filter.test(currentNode)) {
             resultNodes.add(currentNode);
         }
-        for (YamlNode child : currentNode.children) {
-            filterNodesRecursive(child, filter, resultNodes);
+        for (int child = tree.firstChild(node); child != NO_NODE; child = tree.nextSibling(child)) {
+            filterNodesRecursive(tree, child, filter, resultNodes);
         }
         return resultNodes;
     }
@@ -90,51 +124,99 @@ public class YamlNode {
     }
 
     public List<YamlNode> getAllChildren(final Predicate<YamlNode> filter) {
-        return filterNodesRecursive(this, filter, new ArrayList<>());
+        return filterNodesRecursive(tree, id, filter, new ArrayList<>());
     }
 
     public Optional<YamlNode> getChild(final String childName) {
-        return children.stream().filter(node -> node.name() != null && node.name().equals(childName)).findFirst();
+        final int child = tree.child(id, childName);
+        return child == NO_NODE ? Optional.empty() : Optional.of(new YamlNode(tree, child));
+    }
+
+    public boolean hasChild(final String childName) {
+        return tree.child(id, childName) != NO_NODE;
+    }
+
+    /**
+     * @return value of the named child, null if the child is missing or has no scalar value
+     */
+    public String getChildValue(final String childName) {
+        final int child = tree.child(id, childName);
+        return child == NO_NODE ? null : tree.value(child);
     }
 
     public boolean hasName(final String name) {
-        return ofNullable(name()).filter(name::equals).isPresent();
+        return name != null && name.equals(name());
     }
 
     public boolean hasParent(final String name) {
-        return ofNullable(parent()).map(YamlNode::name).filter(name::equals).isPresent();
+        final int parent = tree.parent(id);
+        return name != null && parent != NO_NODE && name.equals(tree.name(parent));
     }
 
     public String name() {
-        return name;
+        return tree.name(id);
     }
 
     public String value() {
-        return value;
+        return tree.value(id);
     }
 
     public YamlNode parent() {
-        return parent;
+        final int parent = tree.parent(id);
+        return parent == NO_NODE ? null : new YamlNode(tree, parent);
     }
 
     public int index() {
-        return index;
+        return tree.index(id);
+    }
+
+    public int startOffset() {
+        return tree.startOffset(id);
+    }
+
+    public int endOffset() {
+        return tree.endOffset(id);
+    }
+
+    /**
+     * @return number of nodes of this subtree including this node
+     */
+    public int nodeCount() {
+        int result = 1;
+        for (int child = tree.firstChild(id); child != NO_NODE; child = tree.nextSibling(child)) {
+            result += new YamlNode(tree, child).nodeCount();
+        }
+        return result;
     }
 
     public Optional<YamlNode> getChildByIndex(final int index) {
-        return index < 0 || index > children.size() ? Optional.empty() : Optional.ofNullable(children().get(index));
+        int position = 0;
+        for (int child = tree.firstChild(id); child != NO_NODE && index >= 0; child = tree.nextSibling(child)) {
+            if (position++ == index) {
+                return Optional.of(new YamlNode(tree, child));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean hasChildren() {
+        return tree.firstChild(id) != NO_NODE;
     }
 
     public List<YamlNode> children() {
-        return children;
+        final List<YamlNode> result = new ArrayList<>();
+        for (int child = tree.firstChild(id); child != NO_NODE; child = tree.nextSibling(child)) {
+            result.add(new YamlNode(tree, child));
+        }
+        return result;
     }
 
     @Override
     public String toString() {
         return "YamlNode{" +
-                "name='" + name + '\'' +
-                ", value='" + value + '\'' +
-                ", children=" + children.size() +
+                "name='" + name() + '\'' +
+                ", value='" + value() + '\'' +
+                ", children=" + children().size() +
                 '}';
     }
 
@@ -143,19 +225,22 @@ public class YamlNode {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         final YamlNode yamlNode = (YamlNode) o;
-        return Objects.equals(name, yamlNode.name) && Objects.equals(children, yamlNode.children) && (
+        if (tree == yamlNode.tree && id == yamlNode.id) return true;
+        final String value = value();
+        final String otherValue = yamlNode.value();
+        return Objects.equals(name(), yamlNode.name()) && Objects.equals(children(), yamlNode.children()) && (
                 //Value needs to be only particularly checked so that it's easier to find the position.
-                Objects.equals(value, yamlNode.value) || (value != null
-                        && yamlNode.value != null
+                Objects.equals(value, otherValue) || (value != null
+                        && otherValue != null
                         && value.length() > 0
-                        && yamlNode.value.length() > 0
-                        && (value.startsWith(yamlNode.value) || yamlNode.value.startsWith(value))
+                        && otherValue.length() > 0
+                        && (value.startsWith(otherValue) || otherValue.startsWith(value))
                 )
         );
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, children);
+        return Objects.hash(name(), children());
     }
 }
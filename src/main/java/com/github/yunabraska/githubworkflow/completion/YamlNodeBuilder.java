@@ -0,0 +1,249 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.yunabraska.githubworkflow.completion.YamlTree.NO_NODE;
+
+/**
+ * Builds the {@link YamlNode} tree in one pass from the SnakeYAML event stream, without the intermediate Map / List graph.
+ * <p>
+ * Nodes keep the offsets of their events: key-values from key start to value end, sequence items and the root from value start to value end.
+ * Offsets are code point indexes, for the usual BMP-only workflow files they are equal to the char offsets.
+ * Only the first document is read. Aliases are copied and merge keys ({@code <<}) are resolved like SnakeYAML does, explicit keys win.
+ */
+final class YamlNodeBuilder {
+
+    private static final String MERGE_KEY = "<<";
+
+    private final YamlTree.Builder tree = new YamlTree.Builder();
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final Map<String, Integer> anchors = new HashMap<>();
+    private int aliases;
+
+    private static final class Frame {
+        private final int node;
+        private final String anchor;
+        private final boolean mapping;
+        private boolean hasKey;
+        private String key;
+        private int keyStart;
+        private int childIndex;
+        private boolean hasMergeKey;
+        private int skipDepth;
+
+        private Frame(final int node, final String anchor, final boolean mapping) {
+            this.node = node;
+            this.anchor = anchor;
+            this.mapping = mapping;
+        }
+    }
+
+    private YamlNodeBuilder() {
+    }
+
+    static YamlNode yamlNodeOf(final Reader reader) {
+        return new YamlNodeBuilder().build(YamlLoader.parse(reader));
+    }
+
+    private YamlNode build(final Iterable<Event> events) {
+        for (Event event : events) {
+            switch (event.getEventId()) {
+                case Scalar -> onScalar((ScalarEvent) event);
+                case MappingStart, SequenceStart -> onCollectionStart((CollectionStartEvent) event);
+                case MappingEnd, SequenceEnd -> onCollectionEnd(event);
+                case Alias -> onAlias((AliasEvent) event);
+                case DocumentEnd -> {
+                    //FIRST DOCUMENT ONLY
+                    return result();
+                }
+                default -> {
+                    //STREAM & DOCUMENT START, COMMENTS
+                }
+            }
+        }
+        return result();
+    }
+
+    private YamlNode result() {
+        return tree.size() == 0 ? null : tree.build().root();
+    }
+
+    private void onScalar(final ScalarEvent event) {
+        final Frame frame = stack.peek();
+        if (frame != null && frame.skipDepth > 0) {
+            return;
+        }
+        final String value = valueOf(event);
+        if (isExpectingKey(frame)) {
+            setKey(frame, value, event);
+            return;
+        }
+        if (value == null && frame != null && !frame.mapping) {
+            //NULL ITEMS ARE NOT PART OF THE TREE
+            return;
+        }
+        anchor(event.getAnchor(), add(frame, value, event.getStartMark().getIndex(), event.getEndMark().getIndex()));
+    }
+
+    private void onCollectionStart(final CollectionStartEvent event) {
+        final Frame frame = stack.peek();
+        if (frame != null && (frame.skipDepth > 0 || isExpectingKey(frame))) {
+            //COMPLEX KEYS ARE NOT SUPPORTED, THEIR CONTENT IS SKIPPED
+            frame.skipDepth++;
+            return;
+        }
+        if (stack.size() >= YamlLoader.MAX_NESTING) {
+            throw new YAMLException("Nesting depth exceeds [" + YamlLoader.MAX_NESTING + "]");
+        }
+        final int node = add(frame, null, event.getStartMark().getIndex(), -1);
+        stack.push(new Frame(node, event.getAnchor(), event.getEventId() == Event.ID.MappingStart));
+    }
+
+    private void onCollectionEnd(final Event event) {
+        final Frame frame = stack.peek();
+        if (frame == null) {
+            return;
+        }
+        if (frame.skipDepth > 0) {
+            if (--frame.skipDepth == 0) {
+                //SKIPPED COMPLEX KEY
+                setKey(frame, null, event);
+            }
+            return;
+        }
+        stack.pop();
+        tree.endOffset(frame.node, event.getEndMark().getIndex());
+        if (frame.hasMergeKey) {
+            merge(frame.node);
+        }
+        //ANCHORS OF COLLECTIONS ARE KNOWN ONCE COMPLETE, RECURSIVE ALIASES FAIL AS UNKNOWN
+        anchor(frame.anchor, frame.node);
+    }
+
+    private void onAlias(final AliasEvent event) {
+        final Frame frame = stack.peek();
+        if (frame != null && frame.skipDepth > 0) {
+            return;
+        }
+        if (++aliases > YamlLoader.MAX_ALIASES) {
+            throw new YAMLException("Number of aliases exceeds [" + YamlLoader.MAX_ALIASES + "]");
+        }
+        final Integer target = anchors.get(event.getAnchor());
+        if (target == null) {
+            throw new YAMLException("Unknown anchor [" + event.getAnchor() + "]");
+        }
+        if (isExpectingKey(frame)) {
+            setKey(frame, tree.value(target), event);
+            return;
+        }
+        final int copy = add(frame, tree.value(target), event.getStartMark().getIndex(), event.getEndMark().getIndex());
+        copyChildren(target, copy);
+    }
+
+    private int add(final Frame frame, final String value, final int startOffset, final int endOffset) {
+        if (frame == null) {
+            return tree.add(NO_NODE, null, value, 0, startOffset, endOffset);
+        }
+        final int node = tree.add(
+                frame.node,
+                frame.mapping ? frame.key : null,
+                value,
+                frame.childIndex++,
+                frame.mapping ? frame.keyStart : startOffset,
+                endOffset
+        );
+        frame.hasKey = false;
+        frame.key = null;
+        return node;
+    }
+
+    private void setKey(final Frame frame, final String key, final Event event) {
+        frame.hasKey = true;
+        frame.key = key;
+        frame.keyStart = event.getStartMark().getIndex();
+        frame.hasMergeKey |= MERGE_KEY.equals(key);
+    }
+
+    private static boolean isExpectingKey(final Frame frame) {
+        return frame != null && frame.mapping && !frame.hasKey;
+    }
+
+    private void anchor(final String anchor, final int node) {
+        if (anchor != null) {
+            anchors.put(anchor, node);
+        }
+    }
+
+    /**
+     * Replaces the {@code <<} children by the entries of the referenced mappings in the same order as SnakeYAML:
+     * merged entries take the place of the merge key, the first mapping wins, explicit keys win and keep the position of the entry they replace.
+     */
+    private void merge(final int mapping) {
+        final List<Integer> original = new ArrayList<>();
+        for (int child = tree.firstChild(mapping); child != NO_NODE; child = tree.nextSibling(child)) {
+            original.add(child);
+        }
+        final List<Integer> children = new ArrayList<>();
+        final Map<String, Integer> positions = new HashMap<>();
+        for (int child : original) {
+            if (!MERGE_KEY.equals(tree.name(child))) {
+                final Integer position = tree.name(child) == null ? null : positions.putIfAbsent(tree.name(child), children.size());
+                if (position == null) {
+                    children.add(child);
+                } else {
+                    children.set(position, child);
+                }
+                continue;
+            }
+            final int first = tree.firstChild(child);
+            if (first == NO_NODE || tree.name(first) != null) {
+                mergeEntries(mapping, child, children, positions);
+            } else {
+                //SEQUENCE OF MAPPINGS
+                for (int item = first; item != NO_NODE; item = tree.nextSibling(item)) {
+                    mergeEntries(mapping, item, children, positions);
+                }
+            }
+        }
+        tree.relink(mapping, children);
+    }
+
+    private void mergeEntries(final int mapping, final int source, final List<Integer> children, final Map<String, Integer> positions) {
+        for (int entry = tree.firstChild(source); entry != NO_NODE; entry = tree.nextSibling(entry)) {
+            if (tree.name(entry) != null && positions.putIfAbsent(tree.name(entry), children.size()) == null) {
+                children.add(tree.copy(entry, mapping, tree.name(entry), children.size(), tree.startOffset(entry), tree.endOffset(entry)));
+            }
+        }
+    }
+
+    private void copyChildren(final int source, final int target) {
+        for (int child = tree.firstChild(source); child != NO_NODE; child = tree.nextSibling(child)) {
+            tree.copy(child, target, tree.name(child), tree.index(child), tree.startOffset(child), tree.endOffset(child));
+        }
+    }
+
+    /**
+     * Plain {@code ~, null, Null, NULL} and empty scalars are null like with the {@link YamlLoader}, everything else stays a string.
+     */
+    private static String valueOf(final ScalarEvent event) {
+        final String value = event.getValue();
+        if (event.getScalarStyle() == DumperOptions.ScalarStyle.PLAIN
+                && (value.isEmpty() || "~".equals(value) || "null".equals(value) || "Null".equals(value) || "NULL".equals(value))) {
+            return null;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,323 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flat structure-of-arrays encoding of a YAML tree, {@link YamlNode} is a cursor over it.
+ * <p>
+ * Nodes are ids into the arrays, children are linked by {@code firstChild / nextSibling}.
+ * Names are stored once per tree in a name table of interned strings, so the thousands of `steps`, `uses`, `with`, `run`
+ * of all cached trees share their instances.
+ * <p>
+ * Name lookups compare name ids. Nodes with more than {@link #LOOKUP_THRESHOLD} children (e.g. `jobs`, `env`)
+ * lazily get an open addressing table from name id to child.
+ */
+final class YamlTree {
+
+    static final int NO_NODE = -1;
+    static final int LOOKUP_THRESHOLD = 8;
+    static final YamlTree EMPTY = new Builder().addRoot(null, -1, -1).build();
+
+    private final String[] nameTable;
+    private final Map<String, Integer> nameIds;
+    private final int[] names;
+    private final String[] values;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] indexes;
+    private final int[] startOffsets;
+    private final int[] endOffsets;
+    private volatile AtomicReferenceArray<int[]> lookupTables;
+
+    private YamlTree(final Builder builder) {
+        final int size = builder.size;
+        this.nameTable = builder.nameTable.toArray(new String[0]);
+        this.nameIds = new HashMap<>(builder.nameIds);
+        this.names = Arrays.copyOf(builder.names, size);
+        this.values = Arrays.copyOf(builder.values, size);
+        this.parents = Arrays.copyOf(builder.parents, size);
+        this.firstChildren = Arrays.copyOf(builder.firstChildren, size);
+        this.nextSiblings = Arrays.copyOf(builder.nextSiblings, size);
+        this.indexes = Arrays.copyOf(builder.indexes, size);
+        this.startOffsets = Arrays.copyOf(builder.startOffsets, size);
+        this.endOffsets = Arrays.copyOf(builder.endOffsets, size);
+    }
+
+    YamlNode root() {
+        return new YamlNode(this, 0);
+    }
+
+    int size() {
+        return parents.length;
+    }
+
+    String name(final int node) {
+        final int name = names[node];
+        return name == NO_NODE ? null : nameTable[name];
+    }
+
+    String value(final int node) {
+        return values[node];
+    }
+
+    int parent(final int node) {
+        return parents[node];
+    }
+
+    int firstChild(final int node) {
+        return firstChildren[node];
+    }
+
+    int nextSibling(final int node) {
+        return nextSiblings[node];
+    }
+
+    int index(final int node) {
+        return indexes[node];
+    }
+
+    int startOffset(final int node) {
+        return startOffsets[node];
+    }
+
+    int endOffset(final int node) {
+        return endOffsets[node];
+    }
+
+    /**
+     * @return first child with the given name or {@link #NO_NODE}
+     */
+    int child(final int node, final String name) {
+        final Integer nameId = name == null ? null : nameIds.get(name);
+        if (nameId == null) {
+            return NO_NODE;
+        }
+        int scanned = 0;
+        for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+            if (names[child] == nameId) {
+                return child;
+            }
+            if (++scanned == LOOKUP_THRESHOLD) {
+                return lookup(node, nameId);
+            }
+        }
+        return NO_NODE;
+    }
+
+    private int lookup(final int node, final int nameId) {
+        final int[] table = lookupTable(node);
+        final int mask = table.length - 1;
+        for (int slot = hash(nameId) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            final int child = table[slot] - 1;
+            if (names[child] == nameId) {
+                return child;
+            }
+        }
+        return NO_NODE;
+    }
+
+    private int[] lookupTable(final int node) {
+        AtomicReferenceArray<int[]> tables = lookupTables;
+        if (tables == null) {
+            synchronized (this) {
+                tables = lookupTables;
+                if (tables == null) {
+                    tables = new AtomicReferenceArray<>(size());
+                    lookupTables = tables;
+                }
+            }
+        }
+        int[] table = tables.get(node);
+        if (table == null) {
+            table = newLookupTable(node);
+            tables.set(node, table);
+        }
+        return table;
+    }
+
+    /**
+     * Slots hold child id + 1, the first child of a name wins.
+     */
+    private int[] newLookupTable(final int node) {
+        int count = 0;
+        for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+            count++;
+        }
+        final int[] table = new int[Integer.highestOneBit(Math.max(count, 1)) << 2];
+        final int mask = table.length - 1;
+        for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+            if (names[child] == NO_NODE) {
+                continue;
+            }
+            int slot = hash(names[child]) & mask;
+            while (table[slot] != 0 && names[table[slot] - 1] != names[child]) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == 0) {
+                table[slot] = child + 1;
+            }
+        }
+        return table;
+    }
+
+    private static int hash(final int nameId) {
+        final int hash = nameId * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Growable arrays, nodes need to be added parent first. Children can be reordered again (e.g. YAML merge keys).
+     */
+    static final class Builder {
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final List<String> nameTable = new ArrayList<>();
+        private int size;
+        private int[] names = new int[64];
+        private String[] values = new String[64];
+        private int[] parents = new int[64];
+        private int[] firstChildren = new int[64];
+        private int[] lastChildren = new int[64];
+        private int[] nextSiblings = new int[64];
+        private int[] indexes = new int[64];
+        private int[] startOffsets = new int[64];
+        private int[] endOffsets = new int[64];
+
+        Builder addRoot(final String value, final int startOffset, final int endOffset) {
+            add(NO_NODE, null, value, 0, startOffset, endOffset);
+            return this;
+        }
+
+        int add(final int parent, final String name, final String value, final int index, final int startOffset, final int endOffset) {
+            if (size == parents.length) {
+                grow();
+            }
+            final int node = size++;
+            names[node] = nameIdOf(name);
+            values[node] = value;
+            parents[node] = parent;
+            firstChildren[node] = NO_NODE;
+            lastChildren[node] = NO_NODE;
+            nextSiblings[node] = NO_NODE;
+            indexes[node] = index;
+            startOffsets[node] = startOffset;
+            endOffsets[node] = endOffset;
+            if (parent != NO_NODE) {
+                if (lastChildren[parent] == NO_NODE) {
+                    firstChildren[parent] = node;
+                } else {
+                    nextSiblings[lastChildren[parent]] = node;
+                }
+                lastChildren[parent] = node;
+            }
+            return node;
+        }
+
+        /**
+         * Replaces the children of the parent by the given nodes in the given order and renumbers their indexes.
+         * Former children which are not in the list stay unreachable in the arrays.
+         */
+        void relink(final int parent, final List<Integer> children) {
+            firstChildren[parent] = NO_NODE;
+            lastChildren[parent] = NO_NODE;
+            int index = 0;
+            for (int child : children) {
+                parents[child] = parent;
+                nextSiblings[child] = NO_NODE;
+                indexes[child] = index++;
+                if (lastChildren[parent] == NO_NODE) {
+                    firstChildren[parent] = child;
+                } else {
+                    nextSiblings[lastChildren[parent]] = child;
+                }
+                lastChildren[parent] = child;
+            }
+        }
+
+        /**
+         * Adds a copy of the source node and its subtree as child of the given parent.
+         */
+        int copy(final int source, final int parent, final String name, final int index, final int startOffset, final int endOffset) {
+            final int node = add(parent, name, values[source], index, startOffset, endOffset);
+            for (int child = firstChildren[source]; child != NO_NODE; child = nextSiblings[child]) {
+                copy(child, node, name(child), indexes[child], startOffsets[child], endOffsets[child]);
+            }
+            return node;
+        }
+
+        void endOffset(final int node, final int endOffset) {
+            endOffsets[node] = endOffset;
+        }
+
+        String name(final int node) {
+            return names[node] == NO_NODE ? null : nameTable.get(names[node]);
+        }
+
+        String value(final int node) {
+            return values[node];
+        }
+
+        int index(final int node) {
+            return indexes[node];
+        }
+
+        int firstChild(final int node) {
+            return firstChildren[node];
+        }
+
+        int nextSibling(final int node) {
+            return nextSiblings[node];
+        }
+
+        int lastChild(final int node) {
+            return lastChildren[node];
+        }
+
+        int startOffset(final int node) {
+            return startOffsets[node];
+        }
+
+        int endOffset(final int node) {
+            return endOffsets[node];
+        }
+
+        int size() {
+            return size;
+        }
+
+        YamlTree build() {
+            if (size == 0) {
+                addRoot(null, -1, -1);
+            }
+            return new YamlTree(this);
+        }
+
+        private int nameIdOf(final String name) {
+            if (name == null) {
+                return NO_NODE;
+            }
+            return nameIds.computeIfAbsent(name, key -> {
+                nameTable.add(key.intern());
+                return nameTable.size() - 1;
+            });
+        }
+
+        private void grow() {
+            final int capacity = parents.length * 2;
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            lastChildren = Arrays.copyOf(lastChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            indexes = Arrays.copyOf(indexes, capacity);
+            startOffsets = Arrays.copyOf(startOffsets, capacity);
+            endOffsets = Arrays.copyOf(endOffsets, capacity);
+        }
+    }
+}
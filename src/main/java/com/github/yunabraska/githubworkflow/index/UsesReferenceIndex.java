@@ -0,0 +1,105 @@
+package com.github.yunabraska.githubworkflow.index;
+
+import com.github.yunabraska.githubworkflow.completion.WorkflowFile;
+import com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory;
+import com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory.SchemaKind;
+import com.github.yunabraska.githubworkflow.util.ToolUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.indexing.ScalarIndexExtension;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.yaml.YAMLFileType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_USES;
+
+/**
+ * Every remote `uses: {owner}/{repo}[/{path}]@{ref}` of the workflows and actions in the project.
+ * Local (`./`) and docker references are not indexed as they don't need to be downloaded.
+ */
+public class UsesReferenceIndex extends ScalarIndexExtension<String> {
+
+    public static final ID<String, Void> NAME = ID.create("com.github.yunabraska.githubworkflow.uses");
+
+    public static boolean isRemoteUses(final String uses) {
+        return uses != null
+                && !uses.startsWith(".")
+                && !uses.startsWith("docker://")
+                && ToolUtils.extractGitHubWorkflowUses(uses) != null;
+    }
+
+    /**
+     * Needs to run in a read action and smart mode.
+     */
+    public static List<String> usesReferencesOf(final Project project) {
+        final FileBasedIndex index = FileBasedIndex.getInstance();
+        final GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        //getAllKeys can contain keys of outdated files
+        return index.getAllKeys(NAME, project).stream()
+                .filter(uses -> !index.getContainingFiles(NAME, uses, scope).isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    @NotNull
+    @Override
+    public ID<String, Void> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Void, FileContent> getIndexer() {
+        return inputData -> {
+            final Map<String, Void> result = new HashMap<>();
+            WorkflowFile.workflowFileOf(inputData.getPsiFile()).yaml()
+                    .getAllChildren(node -> node.hasName(FIELD_USES) && node.value() != null)
+                    .forEach(node -> {
+                        final String uses = node.value().trim();
+                        if (isRemoteUses(uses)) {
+                            result.put(uses, null);
+                        }
+                    });
+            return result;
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(YAMLFileType.YML) {
+            @Override
+            public boolean acceptInput(@NotNull final VirtualFile file) {
+                final SchemaKind kind = GitHubSchemaProviderFactory.schemaKindOf(file);
+                return kind == SchemaKind.WORKFLOW || kind == SchemaKind.ACTION;
+            }
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+}
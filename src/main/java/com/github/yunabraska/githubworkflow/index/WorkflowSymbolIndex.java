@@ -0,0 +1,219 @@
+package com.github.yunabraska.githubworkflow.index;
+
+import com.github.yunabraska.githubworkflow.completion.GitHubWorkflowUtils;
+import com.github.yunabraska.githubworkflow.completion.WorkflowFile;
+import com.github.yunabraska.githubworkflow.completion.YamlNode;
+import com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory;
+import com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory.SchemaKind;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.yaml.YAMLFileType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_ENVS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_INPUTS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_JOBS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_OUTPUTS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_SECRETS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_STEPS;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.FIELD_USES;
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowUtils.orEmpty;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Symbols of a workflow file [jobs, steps, outputs, inputs, secrets, envs, uses].
+ * Every key holds a map of symbol name to description, so that completion can answer with one lookup per list.
+ * <p>
+ * Keys: {@link #KEY_JOBS}, {@link #KEY_JOBS_WITH_OUTPUTS}, {@link #KEY_INPUTS}, {@link #KEY_SECRETS}, {@link #KEY_USES}
+ * and per job {@link #jobKey(String, String)} with {@code steps, steps.uses, steps.order, outputs, env, secrets, uses}.
+ * {@code steps.order} maps the step id to its position in the job, so completion can offer only the steps before the caret.
+ */
+public class WorkflowSymbolIndex extends FileBasedIndexExtension<String, Map<String, String>> {
+
+    public static final ID<String, Map<String, String>> NAME = ID.create("com.github.yunabraska.githubworkflow.symbols");
+    public static final String KEY_JOBS = FIELD_JOBS;
+    public static final String KEY_JOBS_WITH_OUTPUTS = FIELD_JOBS + "." + FIELD_OUTPUTS;
+    public static final String KEY_INPUTS = FIELD_INPUTS;
+    public static final String KEY_SECRETS = FIELD_SECRETS;
+    public static final String KEY_USES = FIELD_USES;
+    public static final String KEY_STEP_USES = FIELD_STEPS + "." + FIELD_USES;
+    public static final String KEY_STEP_ORDER = FIELD_STEPS + ".order";
+
+    private static final DataExternalizer<Map<String, String>> EXTERNALIZER = new DataExternalizer<>() {
+        @Override
+        public void save(@NotNull final DataOutput out, final Map<String, String> value) throws IOException {
+            DataInputOutputUtil.writeINT(out, value.size());
+            for (Map.Entry<String, String> entry : value.entrySet()) {
+                IOUtil.writeUTF(out, entry.getKey());
+                IOUtil.writeUTF(out, orEmpty(entry.getValue()));
+            }
+        }
+
+        @Override
+        public Map<String, String> read(@NotNull final DataInput in) throws IOException {
+            final int size = DataInputOutputUtil.readINT(in);
+            final Map<String, String> result = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                result.put(IOUtil.readUTF(in), IOUtil.readUTF(in));
+            }
+            return result;
+        }
+    };
+
+    public static String jobKey(final String jobId, final String field) {
+        return FIELD_JOBS + "." + jobId + "." + field;
+    }
+
+    /**
+     * @return indexed symbols of the file or empty while the index is not available (dumb mode, non-physical file)
+     */
+    public static Optional<Map<String, Map<String, String>>> symbolsOf(final PsiFile psiFile) {
+        final Project project = psiFile.getProject();
+        final VirtualFile virtualFile = psiFile.getOriginalFile().getVirtualFile();
+        if (virtualFile == null || DumbService.isDumb(project)) {
+            return Optional.empty();
+        }
+        return Optional.of(FileBasedIndex.getInstance().getFileData(NAME, virtualFile, project));
+    }
+
+    public static Map<String, Map<String, String>> symbolsOf(final WorkflowFile workflowFile) {
+        final Map<String, Map<String, String>> result = new HashMap<>();
+        putNotEmpty(result, KEY_INPUTS, workflowFile.nodesToMap(
+                FIELD_INPUTS,
+                input -> input.name() != null,
+                input -> orEmpty(input.name()),
+                GitHubWorkflowUtils::getDescription
+        ));
+        for (YamlNode trigger : workflowFile.children()) {
+            if (trigger.hasName("on") || trigger.hasName("true")) {
+                putNotEmpty(result, KEY_SECRETS, trigger.toWorkflowFile().nodesToMap(
+                        FIELD_SECRETS,
+                        secret -> secret.name() != null,
+                        secret -> orEmpty(secret.name()),
+                        GitHubWorkflowUtils::getDescription
+                ));
+            }
+        }
+        workflowFile.yaml().getChild(FIELD_JOBS).ifPresent(jobs -> jobs.children().stream().filter(job -> job.name() != null).forEach(job -> indexJob(result, job)));
+        putNotEmpty(result, KEY_USES, workflowFile.nodesToMap(
+                FIELD_STEPS,
+                step -> step.getChildValue(FIELD_USES) != null,
+                step -> orEmpty(step.getChildValue(FIELD_USES)),
+                step -> orEmpty(step.getChildValue("name"))
+        ));
+        return result;
+    }
+
+    private static void indexJob(final Map<String, Map<String, String>> result, final YamlNode job) {
+        final String jobId = job.name();
+        final String jobName = orEmpty(job.getChildValue("name"));
+        result.computeIfAbsent(KEY_JOBS, key -> new HashMap<>()).put(jobId, jobName);
+        job.getChild(FIELD_OUTPUTS).ifPresent(outputs -> {
+            result.computeIfAbsent(KEY_JOBS_WITH_OUTPUTS, key -> new HashMap<>()).put(jobId, jobName);
+            putNotEmpty(result, jobKey(jobId, FIELD_OUTPUTS), childrenToMap(outputs));
+        });
+        job.getChild(FIELD_ENVS).ifPresent(envs -> putNotEmpty(result, jobKey(jobId, FIELD_ENVS), childrenToMap(envs)));
+        job.getChild(FIELD_SECRETS).ifPresent(secrets -> putNotEmpty(result, jobKey(jobId, FIELD_SECRETS), childrenToMap(secrets)));
+        ofNullable(job.getChildValue(FIELD_USES)).ifPresent(uses -> {
+            putNotEmpty(result, jobKey(jobId, FIELD_USES), Map.of(uses, jobName));
+            result.computeIfAbsent(KEY_USES, key -> new HashMap<>()).put(uses, jobName);
+        });
+        final Map<String, String> steps = new HashMap<>();
+        final Map<String, String> stepUses = new HashMap<>();
+        final Map<String, String> stepOrder = new HashMap<>();
+        job.getChild(FIELD_STEPS).ifPresent(stepList -> {
+            final List<YamlNode> children = stepList.children();
+            for (int position = 0; position < children.size(); position++) {
+                final YamlNode step = children.get(position);
+                final String stepId = step.getChildValue("id");
+                if (stepId != null) {
+                    final Optional<String> uses = ofNullable(step.getChildValue(FIELD_USES));
+                    steps.put(stepId, uses.orElseGet(() -> orEmpty(step.getChildValue("name"))));
+                    uses.ifPresent(value -> stepUses.put(stepId, value));
+                    stepOrder.putIfAbsent(stepId, String.valueOf(position));
+                }
+            }
+        });
+        putNotEmpty(result, jobKey(jobId, FIELD_STEPS), steps);
+        putNotEmpty(result, jobKey(jobId, KEY_STEP_USES), stepUses);
+        putNotEmpty(result, jobKey(jobId, KEY_STEP_ORDER), stepOrder);
+    }
+
+    private static Map<String, String> childrenToMap(final YamlNode node) {
+        final Map<String, String> result = new HashMap<>();
+        node.children().stream().filter(child -> child.name() != null).forEach(child -> result.put(child.name(), orEmpty(child.value())));
+        return result;
+    }
+
+    private static void putNotEmpty(final Map<String, Map<String, String>> result, final String key, final Map<String, String> values) {
+        if (!values.isEmpty()) {
+            result.computeIfAbsent(key, k -> new HashMap<>()).putAll(values);
+        }
+    }
+
+    @NotNull
+    @Override
+    public ID<String, Map<String, String>> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Map<String, String>, FileContent> getIndexer() {
+        return inputData -> symbolsOf(WorkflowFile.workflowFileOf(inputData.getPsiFile()));
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<Map<String, String>> getValueExternalizer() {
+        return EXTERNALIZER;
+    }
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(YAMLFileType.YML) {
+            @Override
+            public boolean acceptInput(@NotNull final VirtualFile file) {
+                return GitHubSchemaProviderFactory.schemaKindOf(file) == SchemaKind.WORKFLOW;
+            }
+        };
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+}
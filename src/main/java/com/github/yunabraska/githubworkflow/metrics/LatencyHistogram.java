@@ -0,0 +1,122 @@
+package com.github.yunabraska.githubworkflow.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of durations in nanoseconds, in the style of HdrHistogram.
+ * <p>
+ * Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so every recorded value is off by at most 12.5%.
+ * The fixed 488 buckets cover the whole {@code long} range. Each bucket is a {@link LongAdder}, so threads recording the same latency
+ * don't contend on one CAS, and recording only allocates when an adder first spreads out under contention.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts[indexOf(value)].increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        long result = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            result += counts[i].sum();
+        }
+        return result;
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    public long meanNanos() {
+        final long count = count();
+        return count == 0 ? 0 : total.sum() / count;
+    }
+
+    /**
+     * @param percentile e.g. 99.0
+     * @return upper bound of the bucket containing the percentile, 0 if nothing was recorded
+     */
+    public long percentileNanos(final double percentile) {
+        final long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(count * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i].reset();
+        }
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * @return e.g. "n=42 p50=1.2ms p99=8.0ms max=9.1ms"
+     */
+    public String summary() {
+        return "n=" + count() + " p50=" + format(percentileNanos(50)) + " p99=" + format(percentileNanos(99)) + " max=" + format(maxNanos());
+    }
+
+    static String format(final long nanos) {
+        if (nanos < TimeUnit.MICROSECONDS.toNanos(1)) {
+            return nanos + "ns";
+        } else if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+            return (nanos / 1000) + "us";
+        }
+        return String.format(Locale.ROOT, "%.1fms", nanos / 1_000_000.0);
+    }
+
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBoundOf(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int magnitude = index / SUB_BUCKETS + SUB_BITS - 1;
+        final long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (magnitude - SUB_BITS);
+        final long upper = lower + (1L << (magnitude - SUB_BITS)) - 1;
+        //THE LAST BUCKETS REACH BEYOND Long.MAX_VALUE
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
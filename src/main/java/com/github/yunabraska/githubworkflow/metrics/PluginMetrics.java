@@ -0,0 +1,163 @@
+package com.github.yunabraska.githubworkflow.metrics;
+
+import com.github.yunabraska.githubworkflow.cache.BoundedCache;
+import com.github.yunabraska.githubworkflow.cache.SingleFlight;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Plugin-wide registry of counters, gauges and latency histograms, read by the {@link PluginMetricsExporter}.
+ * <p>
+ * Counters are {@link LongAdder}s and timers are {@link LatencyHistogram}s, recording never locks.
+ * Gauges are read only when a snapshot is taken, e.g. the hit and miss counts the {@link BoundedCache}s keep anyway.
+ * Recording can be switched off with {@code -Dgithub.workflow.metrics=false}, timers then don't even read the clock.
+ */
+public final class PluginMetrics {
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("github.workflow.metrics"));
+    private static final Map<Counter, LongAdder> COUNTERS = new EnumMap<>(Counter.class);
+    private static final Map<Timer, LatencyHistogram> TIMERS = new EnumMap<>(Timer.class);
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentSkipListMap<>();
+
+    public enum Counter {
+        /** Responses with a body from GitHub or schemastore, one per request, e.g. per GraphQL batch */
+        DOWNLOAD,
+        /** Action metadata found in the {@code ActionMetadataStore} and schema files found in the IDE system dir */
+        DISK_HIT,
+        /** Conditional requests answered with 304 */
+        NOT_MODIFIED
+    }
+
+    public enum Timer {
+        /** Building the workflow model from text or PSI */
+        PARSE,
+        /** Finding the node at the caret */
+        CARET,
+        /** Resolving a remote or local action */
+        ACTION_RESOLVE,
+        /** HTTP requests to GitHub */
+        NETWORK_FETCH,
+        /** Reading cached content and action metadata from disk */
+        DISK_READ,
+        /** Creating lookup elements for the completion result */
+        LOOKUP_BUILD
+    }
+
+    static {
+        for (Counter counter : Counter.values()) {
+            COUNTERS.put(counter, new LongAdder());
+        }
+        for (Timer timer : Timer.values()) {
+            TIMERS.put(timer, new LatencyHistogram());
+        }
+    }
+
+    private PluginMetrics() {
+    }
+
+    public static void increment(final Counter counter) {
+        if (ENABLED) {
+            COUNTERS.get(counter).increment();
+        }
+    }
+
+    /**
+     * @return start time for {@link #record(Timer, long)}, 0 if metrics are disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    public static void record(final Timer timer, final long start) {
+        if (start != 0L) {
+            TIMERS.get(timer).record(System.nanoTime() - start);
+        }
+    }
+
+    public static <T> T time(final Timer timer, final Supplier<T> supplier) {
+        final long start = start();
+        try {
+            return supplier.get();
+        } finally {
+            record(timer, start);
+        }
+    }
+
+    /**
+     * Registers a value which is only read when a snapshot is taken, replaces a gauge with the same name.
+     */
+    public static void gauge(final String name, final LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static void register(final BoundedCache<?, ?> cache) {
+        final String prefix = "cache." + cache.name() + ".";
+        gauge(prefix + "hits", cache::hits);
+        gauge(prefix + "misses", cache::misses);
+        gauge(prefix + "evictions", cache::evictions);
+        gauge(prefix + "rejections", cache::rejections);
+        gauge(prefix + "size", cache::size);
+    }
+
+    public static void register(final SingleFlight<?, ?> singleFlight) {
+        final String prefix = "requests." + singleFlight.name() + ".";
+        gauge(prefix + "total", singleFlight::requests);
+        gauge(prefix + "coalesced", singleFlight::coalesced);
+        gauge(prefix + "inFlight", singleFlight::inFlight);
+    }
+
+    /**
+     * @return counters, timer counts and gauges by name, e.g. "counter.download", "timer.parse.count", "cache.actions.hits"
+     */
+    public static Map<String, Long> counters() {
+        final Map<String, Long> result = new TreeMap<>();
+        COUNTERS.forEach((counter, adder) -> result.put("counter." + nameOf(counter), adder.sum()));
+        TIMERS.forEach((timer, histogram) -> result.put("timer." + nameOf(timer) + ".count", histogram.count()));
+        GAUGES.forEach((name, gauge) -> result.put(name, gauge.getAsLong()));
+        return result;
+    }
+
+    /**
+     * @return summary of each timer by name, e.g. "parse" -> "n=42 p50=1.2ms p99=8.0ms max=9.1ms"
+     */
+    public static Map<String, String> latencies() {
+        final Map<String, String> result = new LinkedHashMap<>();
+        TIMERS.forEach((timer, histogram) -> result.put(nameOf(timer), histogram.summary()));
+        return result;
+    }
+
+    /**
+     * @return all values in one line, timers without records are left out
+     */
+    public static String summary() {
+        final StringBuilder result = new StringBuilder();
+        TIMERS.forEach((timer, histogram) -> {
+            if (histogram.count() > 0) {
+                result.append(nameOf(timer)).append(" [").append(histogram.summary()).append("] ");
+            }
+        });
+        COUNTERS.forEach((counter, adder) -> result.append(nameOf(counter)).append('=').append(adder.sum()).append(' '));
+        GAUGES.forEach((name, gauge) -> result.append(name).append('=').append(gauge.getAsLong()).append(' '));
+        return result.toString().trim();
+    }
+
+    /**
+     * Resets counters and timers, gauges belong to their source and are kept.
+     */
+    public static void reset() {
+        COUNTERS.values().forEach(LongAdder::reset);
+        TIMERS.values().forEach(LatencyHistogram::reset);
+    }
+
+    private static String nameOf(final Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.yunabraska.githubworkflow.metrics;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the {@link PluginMetrics} as MXBean {@value #OBJECT_NAME} (e.g. for JConsole or VisualVM) and logs a one-line summary to idea.log.
+ * <p>
+ * The summary is logged every {@code -Dgithub.workflow.metrics.log.minutes} (default 15, 0 disables it) and only if something changed since the last one.
+ */
+@Service
+public final class PluginMetricsExporter implements PluginMetricsMXBean, Disposable {
+
+    static final String OBJECT_NAME = "com.github.yunabraska.githubworkflow:type=Metrics";
+    private static final Logger LOG = Logger.getInstance(PluginMetricsExporter.class);
+    private static final long LOG_MINUTES = Long.getLong("github.workflow.metrics.log.minutes", 15L);
+
+    private final ObjectName objectName;
+    private final ScheduledFuture<?> logger;
+    private Map<String, Long> lastCounters = Map.of();
+
+    public PluginMetricsExporter() {
+        objectName = register();
+        logger = LOG_MINUTES > 0
+                ? AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(this::logSummary, LOG_MINUTES, LOG_MINUTES, TimeUnit.MINUTES)
+                : null;
+    }
+
+    public static PluginMetricsExporter getInstance() {
+        return ApplicationManager.getApplication().getService(PluginMetricsExporter.class);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return PluginMetrics.counters();
+    }
+
+    @Override
+    public Map<String, String> getLatencies() {
+        return PluginMetrics.latencies();
+    }
+
+    @Override
+    public String getSummary() {
+        return PluginMetrics.summary();
+    }
+
+    @Override
+    public void reset() {
+        PluginMetrics.reset();
+    }
+
+    private void logSummary() {
+        //COMPARED VALUE BY VALUE: A SUM WOULD MISS GAUGES GOING UP AND DOWN BY THE SAME AMOUNT
+        final Map<String, Long> counters = PluginMetrics.counters();
+        if (!counters.equals(lastCounters)) {
+            lastCounters = counters;
+            LOG.info("Metrics " + PluginMetrics.summary());
+        }
+    }
+
+    private ObjectName register() {
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                //LEFT BEHIND BY A PREVIOUS PLUGIN INSTANCE
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            return name;
+        } catch (JMException | RuntimeException e) {
+            //METRICS ARE OPTIONAL
+            LOG.warn("Failed to register MBean [" + OBJECT_NAME + "] message [" + e.getMessage() + "]");
+            return null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (logger != null) {
+            logger.cancel(false);
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException | RuntimeException e) {
+                LOG.debug("Failed to unregister MBean [" + OBJECT_NAME + "]", e);
+            }
+        }
+    }
+}
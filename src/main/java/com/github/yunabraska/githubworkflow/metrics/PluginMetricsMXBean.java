@@ -0,0 +1,17 @@
+package com.github.yunabraska.githubworkflow.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link PluginMetrics}, registered as {@value PluginMetricsExporter#OBJECT_NAME}.
+ */
+public interface PluginMetricsMXBean {
+
+    Map<String, Long> getCounters();
+
+    Map<String, String> getLatencies();
+
+    String getSummary();
+
+    void reset();
+}
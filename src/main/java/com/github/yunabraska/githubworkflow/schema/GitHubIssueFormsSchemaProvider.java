@@ -1,6 +1,6 @@
 package com.github.yunabraska.githubworkflow.schema;
 
-import com.github.yunabraska.githubworkflow.completion.GitHubWorkflowUtils;
+import com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory.SchemaKind;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.jetbrains.jsonSchema.extension.JsonSchemaFileProvider;
 import com.jetbrains.jsonSchema.extension.SchemaType;
@@ -8,13 +8,8 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Optional;
-import java.util.function.Predicate;
-
-import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowUtils.downloadSchema;
-import static com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory.GITHUB_SCHEMA_CACHE;
+import static com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory.schemaFileOf;
+import static com.github.yunabraska.githubworkflow.schema.GitHubSchemaProviderFactory.schemaKindOf;
 
 public class GitHubIssueFormsSchemaProvider implements JsonSchemaFileProvider {
 
@@ -26,17 +21,7 @@ public class GitHubIssueFormsSchemaProvider implements JsonSchemaFileProvider {
 
     @Override
     public boolean isAvailable(@NotNull final VirtualFile file) {
-        return Optional.of(file)
-                .filter(GitHubWorkflowUtils::isYamlFile)
-                .map(VirtualFile::getPath)
-                .map(Paths::get)
-                .filter(validatePath()).isPresent();
-    }
-
-    public Predicate<Path> validatePath() {
-        return path -> path.getNameCount() > 2
-                && path.getName(path.getNameCount() - 3).toString().equalsIgnoreCase(".github")
-                && path.getName(path.getNameCount() - 2).toString().equalsIgnoreCase("ISSUE_TEMPLATE");
+        return schemaKindOf(file) == SchemaKind.ISSUE_FORMS;
     }
 
     @NotNull
@@ -49,7 +34,7 @@ public class GitHubIssueFormsSchemaProvider implements JsonSchemaFileProvider {
     @Nullable
     @Override
     public VirtualFile getSchemaFile() {
-        return GITHUB_SCHEMA_CACHE.computeIfAbsent(SCHEMA_URL, key -> downloadSchema(SCHEMA_URL, NAME));
+        return schemaFileOf(SCHEMA_URL);
     }
 
     @NotNull
@@ -1,6 +1,7 @@
 package com.github.yunabraska.githubworkflow.schema;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.jetbrains.jsonSchema.extension.JsonSchemaFileProvider;
 import com.jetbrains.jsonSchema.extension.JsonSchemaProviderFactory;
@@ -8,17 +9,127 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class GitHubSchemaProviderFactory implements JsonSchemaProviderFactory {
 
-    public static final Map<String, VirtualFile> GITHUB_SCHEMA_CACHE = new ConcurrentHashMap<>();
+    private static final Key<Classification> SCHEMA_KIND = Key.create("github.workflow.schema.kind");
+
+    public enum SchemaKind {
+        WORKFLOW,
+        ACTION,
+        FUNDING,
+        DISCUSSION,
+        ISSUE_FORMS,
+        ISSUE_CONFIG,
+        WORKFLOW_TEMPLATE,
+        NONE
+    }
+
+    /**
+     * The kind only depends on the names of the file, its parent and its grandparent, so it is valid as long as these names are the same.
+     * Renames and moves of the file or its parents change them, changes anywhere else in the VFS don't.
+     */
+    private record Classification(SchemaKind kind, String name, String parentName, String grandParentName) {
+
+        private boolean isValidFor(final VirtualFile file) {
+            final VirtualFile parent = file.getParent();
+            final VirtualFile grandParent = parent == null ? null : parent.getParent();
+            return name.contentEquals(file.getNameSequence()) && sameName(parentName, parent) && sameName(grandParentName, grandParent);
+        }
+
+        private static Classification of(final SchemaKind kind, final VirtualFile file) {
+            final VirtualFile parent = file.getParent();
+            final VirtualFile grandParent = parent == null ? null : parent.getParent();
+            return new Classification(kind, file.getName(), parent == null ? null : parent.getName(), grandParent == null ? null : grandParent.getName());
+        }
+
+        private static boolean sameName(final String name, final VirtualFile file) {
+            return name == null ? file == null : file != null && name.contentEquals(file.getNameSequence());
+        }
+    }
+
+    /**
+     * Never blocks on the network, see {@link SchemaSnapshotStore}.
+     */
+    public static VirtualFile schemaFileOf(final String url) {
+        return SchemaSnapshotStore.getInstance().schemaFileOf(url);
+    }
+
+    /**
+     * Asked by every provider for every file the JSON schema service looks at, so the classification is cached in the user data of the file.
+     * Only the names of the file, its parent and its grandparent are compared, no path is built.
+     */
+    public static SchemaKind schemaKindOf(final VirtualFile file) {
+        final Classification cached = file.getUserData(SCHEMA_KIND);
+        if (cached != null && cached.isValidFor(file)) {
+            return cached.kind();
+        }
+        final SchemaKind result = classify(file);
+        file.putUserData(SCHEMA_KIND, Classification.of(result, file));
+        return result;
+    }
+
+    private static SchemaKind classify(final VirtualFile file) {
+        final CharSequence name = file.getNameSequence();
+        final int baseLength = yamlBaseLength(name);
+        if (baseLength == -1) {
+            return SchemaKind.NONE;
+        }
+        final VirtualFile parent = file.getParent();
+        final VirtualFile grandParent = parent == null ? null : parent.getParent();
+        if (grandParent != null && equalsIgnoreCase(grandParent.getNameSequence(), ".github")) {
+            final CharSequence directory = parent.getNameSequence();
+            if (equalsIgnoreCase(directory, "workflows")) {
+                return SchemaKind.WORKFLOW;
+            } else if (equalsIgnoreCase(directory, "DISCUSSION_TEMPLATE")) {
+                return SchemaKind.DISCUSSION;
+            } else if (equalsIgnoreCase(directory, "ISSUE_TEMPLATE")) {
+                return baseLength == 6 && startsWithIgnoreCase(name, "config") ? SchemaKind.ISSUE_CONFIG : SchemaKind.ISSUE_FORMS;
+            } else if (equalsIgnoreCase(directory, "workflow-templates")) {
+                return SchemaKind.WORKFLOW_TEMPLATE;
+            }
+        }
+        if (baseLength == 6 && startsWithIgnoreCase(name, "action")) {
+            return SchemaKind.ACTION;
+        }
+        return baseLength == 7 && startsWithIgnoreCase(name, "FUNDING") ? SchemaKind.FUNDING : SchemaKind.NONE;
+    }
+
+    /**
+     * @return length of the name without the `.yml` or `.yaml` extension, -1 for other files
+     */
+    private static int yamlBaseLength(final CharSequence name) {
+        if (endsWithIgnoreCase(name, ".yml")) {
+            return name.length() - 4;
+        }
+        return endsWithIgnoreCase(name, ".yaml") ? name.length() - 5 : -1;
+    }
+
+    private static boolean equalsIgnoreCase(final CharSequence text, final String other) {
+        return text.length() == other.length() && regionMatchesIgnoreCase(text, 0, other);
+    }
+
+    private static boolean startsWithIgnoreCase(final CharSequence text, final String prefix) {
+        return text.length() >= prefix.length() && regionMatchesIgnoreCase(text, 0, prefix);
+    }
+
+    private static boolean endsWithIgnoreCase(final CharSequence text, final String suffix) {
+        return text.length() >= suffix.length() && regionMatchesIgnoreCase(text, text.length() - suffix.length(), suffix);
+    }
+
+    private static boolean regionMatchesIgnoreCase(final CharSequence text, final int offset, final String other) {
+        for (int i = 0; i < other.length(); i++) {
+            if (Character.toLowerCase(text.charAt(offset + i)) != Character.toLowerCase(other.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     @NotNull
     @Override
     public List<JsonSchemaFileProvider> getProviders(@NotNull final Project project) {
-        return Arrays.asList(
+        final List<JsonSchemaFileProvider> providers = Arrays.asList(
                 new GitHubActionSchemaProvider(),
                 new GitHubFoundingSchemaProvider(),
                 new GitHubWorkflowSchemaProvider(),
@@ -27,5 +138,7 @@ public class GitHubSchemaProviderFactory implements JsonSchemaProviderFactory {
                 new GitHubIssueConfigSchemaProvider(),
                 new GitHubWorkflowTemplateSchemaProvider()
         );
+        SchemaSnapshotStore.getInstance().refreshAsync(providers.stream().map(JsonSchemaFileProvider::getRemoteSource).toList());
+        return providers;
     }
 }
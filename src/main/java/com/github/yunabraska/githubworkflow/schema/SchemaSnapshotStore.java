@@ -0,0 +1,402 @@
+package com.github.yunabraska.githubworkflow.schema;
+
+import com.github.yunabraska.githubworkflow.api.ConditionalRequest;
+import com.github.yunabraska.githubworkflow.api.ConditionalResponse;
+import com.github.yunabraska.githubworkflow.metrics.PluginMetrics;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.jetbrains.jsonSchema.ide.JsonSchemaService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.github.yunabraska.githubworkflow.completion.GitHubWorkflowConfig.CACHE_ONE_DAY;
+
+/**
+ * Schemas served from stable files in the IDE system dir, so the parsed schemas of the JSON schema service survive restarts.
+ * <p>
+ * A missing file is seeded from the snapshot bundled in the plugin jar ({@value #SNAPSHOT_DIR}, read from {@code src/main/resources/schemas}, written by the {@code refreshSchemaSnapshots} Gradle task),
+ * so no schema request ever waits for the network.
+ * Without a bundled snapshot the schema has no file until the background refresh downloaded it, so an offline first run has no validation for it.
+ * <p>
+ * Once per session all schemas are refreshed together: the schemastore catalog is read once and only schemas whose catalog entry changed
+ * or which weren't revalidated within {@link #REFRESH_INTERVAL} are fetched, conditional and in parallel.
+ * The new files are only swapped in if every fetch succeeded and are rolled back if one of them can't be stored,
+ * the JSON schema service is reset once if a content hash changed.
+ */
+public final class SchemaSnapshotStore {
+
+    private static final Logger LOG = Logger.getInstance(SchemaSnapshotStore.class);
+    private static final String SNAPSHOT_DIR = "/schemas/";
+    private static final String CATALOG_URL = System.getProperty("github.workflow.schema.catalog.url", "https://www.schemastore.org/api/json/catalog.json");
+    private static final String CATALOG = "catalog";
+    private static final String ETAG = ".etag";
+    private static final String LAST_MODIFIED = ".lastModified";
+    private static final String FETCHED_AT = ".fetchedAt";
+    private static final String FINGERPRINT = ".catalog";
+    private static final long REFRESH_INTERVAL = CACHE_ONE_DAY * 30;
+    private static final int PARALLEL_DOWNLOADS = Integer.getInteger("github.workflow.schema.downloads", 4);
+    private static final SchemaSnapshotStore INSTANCE = new SchemaSnapshotStore(Paths.get(PathManager.getSystemPath(), "github-workflow-plugin", "schemas"));
+
+    private final Path directory;
+    private final Map<String, VirtualFile> files = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshed = new AtomicBoolean(false);
+    private final Set<String> missingSnapshots = ConcurrentHashMap.newKeySet();
+    private final ExecutorService downloads = AppExecutorUtil.createBoundedApplicationPoolExecutor("GitHub Schema Refresh", PARALLEL_DOWNLOADS);
+
+    /**
+     * @param fingerprint catalog url of the schema including its versions, the schema url if the catalog doesn't know the schema
+     * @param fetched     result of the conditional request, null if the request failed
+     * @param oldHash     hash of the file before the refresh
+     */
+    private record Fetch(String name, String fingerprint, ConditionalResponse fetched, byte[] oldHash) {
+    }
+
+    private SchemaSnapshotStore(final Path directory) {
+        this.directory = directory;
+        PluginMetrics.gauge("schemas.files", files::size);
+    }
+
+    public static SchemaSnapshotStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Never downloads.
+     *
+     * @param url schema url, its last segment (e.g. {@code github-workflow}) names the file
+     * @return stable schema file or null if there is neither a stored file nor a bundled snapshot yet
+     */
+    public VirtualFile schemaFileOf(final String url) {
+        final String name = nameOf(url);
+        final VirtualFile cached = files.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        final Path path = pathOf(name);
+        final boolean exists = Files.exists(path) || seedFromSnapshot(name, path);
+        if (!exists && missingSnapshots.add(name)) {
+            LOG.warn("No bundled snapshot for schema [" + name + "], it is unavailable until the background refresh downloaded it");
+        }
+        final VirtualFile result = exists ? findFile(path) : null;
+        if (result != null) {
+            PluginMetrics.increment(PluginMetrics.Counter.DISK_HIT);
+            files.put(name, result);
+        }
+        return result;
+    }
+
+    /**
+     * Refreshes all given schemas in background, once per session.
+     */
+    public void refreshAsync(final Collection<String> urls) {
+        if (refreshed.compareAndSet(false, true)) {
+            final List<String> schemaUrls = List.copyOf(urls);
+            CompletableFuture.runAsync(() -> refresh(schemaUrls), AppExecutorUtil.getAppExecutorService())
+                    .exceptionally(e -> {
+                        LOG.warn("Schema refresh failed message [" + e.getMessage() + "]");
+                        return null;
+                    });
+        }
+    }
+
+    private void refresh(final List<String> urls) {
+        final Properties meta = loadMeta();
+        //ONE CATALOG REQUEST INSTEAD OF ONE REQUEST PER SCHEMA
+        final ConditionalResponse catalog = fetch(CATALOG_URL, meta, CATALOG);
+        final Map<String, String> catalogUrls = catalog == null || catalog.notModified() ? Map.of() : catalogUrlsOf(catalog.body());
+        final List<CompletableFuture<Fetch>> fetches = new ArrayList<>();
+        for (String url : urls) {
+            final String name = nameOf(url);
+            final String fingerprint = catalogUrls.getOrDefault(name, meta.getProperty(name + FINGERPRINT, url));
+            final long fetchedAt = Long.parseLong(meta.getProperty(name + FETCHED_AT, "0"));
+            final boolean catalogChanged = catalogUrls.containsKey(name) && !fingerprint.equals(meta.getProperty(name + FINGERPRINT));
+            final boolean exists = Files.exists(pathOf(name));
+            if (catalogChanged || fetchedAt < System.currentTimeMillis() - REFRESH_INTERVAL || !exists) {
+                final String source = fingerprint.split("#", 2)[0];
+                //VALIDATORS ONLY FOR EXISTING FILES, A 304 CAN'T RESTORE A DELETED FILE
+                final Properties validators = exists ? meta : new Properties();
+                fetches.add(CompletableFuture.supplyAsync(() -> new Fetch(name, fingerprint, fetch(source, validators, name), hashOf(pathOf(name))), downloads));
+            }
+        }
+        if (fetches.isEmpty()) {
+            //NOTHING TO FETCH, BUT THE VALIDATORS OF A CHANGED CATALOG STILL SAVE ITS DOWNLOAD NEXT SESSION
+            if (catalog != null && !catalog.notModified()) {
+                try {
+                    storeMeta(withCatalog(meta, catalog));
+                } catch (IOException e) {
+                    LOG.warn("Failed to store schema catalog validators message [" + e.getMessage() + "]");
+                }
+            }
+            registerNewFiles(urls);
+            return;
+        }
+        CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            final List<Fetch> results = fetches.stream().map(CompletableFuture::join).toList();
+            if (results.stream().anyMatch(result -> result.fetched() == null)) {
+                //ALL OR NOTHING: PROVIDERS NEVER MIX OLD AND NEW SCHEMAS, THE NEXT SESSION RETRIES
+                LOG.warn("Schema refresh incomplete, keeping the current schemas");
+                return;
+            }
+            swap(results, catalog, meta);
+            registerNewFiles(urls);
+        });
+    }
+
+    /**
+     * Writes all changed schemas to temp files first and moves them in place afterwards, then stores the validators.
+     * If a move or storing the validators fails, the files which were already replaced are restored from their backups,
+     * so the stored schemas and validators are either all old or all new.
+     */
+    private void swap(final List<Fetch> results, final ConditionalResponse catalog, final Properties meta) {
+        final Map<Path, Path> moves = new LinkedHashMap<>();
+        //TARGET -> BACKUP, NULL IF THE TARGET DIDN'T EXIST
+        final Map<Path, Path> moved = new LinkedHashMap<>();
+        try {
+            for (Fetch result : results) {
+                final ConditionalResponse fetched = result.fetched();
+                if (!fetched.notModified() && fetched.body() != null) {
+                    final byte[] content = fetched.body().getBytes(StandardCharsets.UTF_8);
+                    if (!Arrays.equals(result.oldHash(), hashOf(content))) {
+                        moves.put(writeTemp(pathOf(result.name()), content), pathOf(result.name()));
+                    }
+                }
+                putIfPresent(meta, result.name() + ETAG, fetched.etag());
+                putIfPresent(meta, result.name() + LAST_MODIFIED, fetched.lastModified());
+                meta.setProperty(result.name() + FINGERPRINT, result.fingerprint());
+                meta.setProperty(result.name() + FETCHED_AT, String.valueOf(System.currentTimeMillis()));
+            }
+            for (Map.Entry<Path, Path> move : moves.entrySet()) {
+                final Path target = move.getValue();
+                //COPY, NOT MOVE: THE TARGET IS NEVER MISSING FOR READERS
+                final Path backup = Files.exists(target) ? Files.copy(target, target.resolveSibling(target.getFileName() + ".bak"), StandardCopyOption.REPLACE_EXISTING) : null;
+                moved.put(target, backup);
+                Files.move(move.getKey(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            storeMeta(catalog != null ? withCatalog(meta, catalog) : meta);
+        } catch (IOException e) {
+            LOG.warn("Failed to store schemas, restoring [" + moved.size() + "] message [" + e.getMessage() + "]");
+            rollback(moved);
+            moves.keySet().forEach(SchemaSnapshotStore::deleteQuietly);
+            return;
+        }
+        moved.values().stream().filter(Objects::nonNull).forEach(SchemaSnapshotStore::deleteQuietly);
+        if (!moves.isEmpty()) {
+            LOG.info("Schemas changed [" + moves.size() + "]");
+            final List<VirtualFile> changed = moves.values().stream().map(LocalFileSystem.getInstance()::refreshAndFindFileByNioFile).filter(Objects::nonNull).toList();
+            VfsUtil.markDirtyAndRefresh(false, false, false, changed.toArray(VirtualFile[]::new));
+            resetSchemaService();
+        }
+    }
+
+    /**
+     * Restores the backups of the replaced files, files which didn't exist before are deleted.
+     */
+    private static void rollback(final Map<Path, Path> moved) {
+        moved.forEach((target, backup) -> {
+            try {
+                if (backup == null) {
+                    Files.deleteIfExists(target);
+                } else {
+                    Files.move(backup, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to restore schema [" + target + "] message [" + e.getMessage() + "]");
+            }
+        });
+    }
+
+    private static Properties withCatalog(final Properties meta, final ConditionalResponse catalog) {
+        putIfPresent(meta, CATALOG + ETAG, catalog.etag());
+        putIfPresent(meta, CATALOG + LAST_MODIFIED, catalog.lastModified());
+        return meta;
+    }
+
+    /**
+     * Files which weren't visible to the VFS when they were asked for are registered here, outside of a read action.
+     */
+    private void registerNewFiles(final List<String> urls) {
+        boolean added = false;
+        for (String url : urls) {
+            final String name = nameOf(url);
+            final Path path = pathOf(name);
+            if (!files.containsKey(name) && Files.exists(path)) {
+                final VirtualFile file = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(path);
+                if (file != null) {
+                    files.put(name, file);
+                    added = true;
+                }
+            }
+        }
+        if (added) {
+            resetSchemaService();
+        }
+    }
+
+    /**
+     * @return result of the conditional request or null if it failed
+     */
+    private static ConditionalResponse fetch(final String url, final Properties meta, final String name) {
+        try {
+            return ConditionalRequest.get(url, null, null, meta.getProperty(name + ETAG), meta.getProperty(name + LAST_MODIFIED));
+        } catch (IOException e) {
+            LOG.warn("Download failed for [" + url + "] message [" + e.getMessage() + "]");
+            return null;
+        }
+    }
+
+    /**
+     * @return catalog url of the known schemas by name, e.g. {@code github-workflow -> https://json.schemastore.org/github-workflow.json}
+     */
+    private static Map<String, String> catalogUrlsOf(final String catalog) {
+        final Map<String, String> result = new HashMap<>();
+        try {
+            for (JsonElement schema : JsonParser.parseString(catalog).getAsJsonObject().getAsJsonArray("schemas")) {
+                final JsonObject entry = schema.getAsJsonObject();
+                final String url = entry.has("url") ? entry.get("url").getAsString() : null;
+                if (url != null) {
+                    //VERSIONED SCHEMAS CHANGE THEIR FINGERPRINT WITH EVERY NEW VERSION
+                    result.put(nameOf(url), entry.has("versions") ? url + "#" + entry.get("versions") : url);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Invalid schema catalog message [" + e.getMessage() + "]");
+        }
+        return result;
+    }
+
+    private static String nameOf(final String url) {
+        final String name = url.substring(url.lastIndexOf('/') + 1);
+        return name.endsWith(".json") ? name.substring(0, name.length() - 5) : name;
+    }
+
+    private Path pathOf(final String name) {
+        return directory.resolve(name + ".json");
+    }
+
+    /**
+     * @return true if the bundled snapshot was copied to the given path
+     */
+    private static boolean seedFromSnapshot(final String name, final Path path) {
+        try (final InputStream snapshot = SchemaSnapshotStore.class.getResourceAsStream(SNAPSHOT_DIR + name + ".json")) {
+            if (snapshot == null) {
+                return false;
+            }
+            Files.move(writeTemp(path, snapshot.readAllBytes()), path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Failed to seed schema [" + name + "] message [" + e.getMessage() + "]");
+            return Files.exists(path);
+        }
+    }
+
+    private static Path writeTemp(final Path path, final byte[] content) throws IOException {
+        Files.createDirectories(path.getParent());
+        final Path result = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        Files.write(result, content);
+        return result;
+    }
+
+    private static VirtualFile findFile(final Path path) {
+        final LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+        final VirtualFile result = fileSystem.findFileByNioFile(path);
+        //A SYNCHRONOUS REFRESH IS NOT ALLOWED WITHIN A READ ACTION, THE BACKGROUND REFRESH PICKS THE FILE UP
+        return result != null || ApplicationManager.getApplication().isReadAccessAllowed() ? result : fileSystem.refreshAndFindFileByNioFile(path);
+    }
+
+    private Properties loadMeta() {
+        final Properties result = new Properties();
+        final Path path = directory.resolve("schemas.properties");
+        if (Files.exists(path)) {
+            try (final Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                result.load(reader);
+            } catch (IOException e) {
+                LOG.warn("Failed to read [" + path + "] message [" + e.getMessage() + "]");
+            }
+        }
+        return result;
+    }
+
+    private void storeMeta(final Properties meta) throws IOException {
+        final Path path = directory.resolve("schemas.properties");
+        Files.createDirectories(directory);
+        final Path tmp = Files.createTempFile(directory, "schemas", ".tmp");
+        try (final Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            meta.store(writer, CATALOG_URL);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putIfPresent(final Properties meta, final String key, final String value) {
+        if (value != null) {
+            meta.setProperty(key, value);
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            //ignored
+        }
+    }
+
+    private static byte[] hashOf(final Path path) {
+        try {
+            return Files.exists(path) ? hashOf(Files.readAllBytes(path)) : new byte[0];
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    private static byte[] hashOf(final byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            return new byte[0];
+        }
+    }
+
+    private static void resetSchemaService() {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+                if (!project.isDisposed()) {
+                    JsonSchemaService.Impl.get(project).reset();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.yunabraska.githubworkflow.api;
+
+import com.intellij.openapi.project.Project;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphQlBatchResolverTest {
+
+    private static final Project PROJECT_A = project("a");
+    private static final Project PROJECT_B = project("b");
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final Map<String, Project> projects = new ConcurrentHashMap<>();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ScheduledExecutorService scheduler;
+    private HttpServer server;
+    private volatile UnaryOperator<String> responder;
+    private GraphQlBatchResolver resolver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/graphql", exchange -> {
+            final String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(request);
+            final String response = responder.apply(request);
+            final byte[] body = (response == null ? "bad gateway" : response).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(response == null ? 502 : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        final URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/graphql");
+        resolver = new GraphQlBatchResolver((project, body) -> {
+            projects.put(body, project);
+            try {
+                final HttpResponse<String> response = client.send(HttpRequest.newBuilder(endpoint).POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IOException("HTTP " + response.statusCode());
+                }
+                return response.body();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }, Runnable::run, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void lookupsWithinTheWindowShareOneRequest() throws Exception {
+        //ANSWERED IN REVERSE ORDER: RESULTS ARE MATCHED BY ALIAS
+        responder = request -> "{\"data\":{"
+                + "\"a2\":" + repository("text-c", "sha-c") + ","
+                + "\"a1\":" + repository("text-b", "sha-b") + ","
+                + "\"a0\":" + repository("text-a", "sha-a")
+                + "}}";
+
+        final CompletableFuture<GraphQlBatchResolver.Blob> first = resolver.fetch(PROJECT_A, "owner", "repo-a", "action.yml", "v1");
+        final CompletableFuture<GraphQlBatchResolver.Blob> second = resolver.fetch(PROJECT_A, "owner", "repo-b", "action.yml", null);
+        final CompletableFuture<GraphQlBatchResolver.Blob> third = resolver.fetch(PROJECT_A, "owner", "repo-c", ".github/workflows/build.yml", "main");
+
+        assertEquals(new GraphQlBatchResolver.Blob("text-a", "sha-a"), first.get(5, TimeUnit.SECONDS));
+        assertEquals(new GraphQlBatchResolver.Blob("text-b", "sha-b"), second.get(5, TimeUnit.SECONDS));
+        assertEquals(new GraphQlBatchResolver.Blob("text-c", "sha-c"), third.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.size());
+        final String query = requests.get(0);
+        assertTrue(query.contains("a0: repository(owner: \\\"owner\\\", name: \\\"repo-a\\\")"), query);
+        assertTrue(query.contains("v1:action.yml"), query);
+        assertTrue(query.contains("HEAD:action.yml"), query);
+        assertTrue(query.contains("a2: repository(owner: \\\"owner\\\", name: \\\"repo-c\\\")"), query);
+        assertTrue(query.contains("main:.github/workflows/build.yml"), query);
+    }
+
+    @Test
+    void eachProjectIsSentWithItsOwnRequest() throws Exception {
+        responder = request -> "{\"data\":{\"a0\":" + repository("text", "sha") + "}}";
+
+        final CompletableFuture<GraphQlBatchResolver.Blob> first = resolver.fetch(PROJECT_A, "owner", "repo-a", "action.yml", "v1");
+        final CompletableFuture<GraphQlBatchResolver.Blob> second = resolver.fetch(PROJECT_B, "owner", "repo-b", "action.yml", "v1");
+
+        assertEquals("text", first.get(5, TimeUnit.SECONDS).text());
+        assertEquals("text", second.get(5, TimeUnit.SECONDS).text());
+        assertEquals(2, requests.size());
+        assertEquals(PROJECT_A, projects.get(requests.stream().filter(request -> request.contains("repo-a")).findFirst().orElseThrow()));
+        assertEquals(PROJECT_B, projects.get(requests.stream().filter(request -> request.contains("repo-b")).findFirst().orElseThrow()));
+    }
+
+    @Test
+    void partialErrorsOnlyFailTheAffectedLookups() throws Exception {
+        responder = request -> "{\"data\":{"
+                + "\"a0\":" + repository("text", "sha") + ","
+                + "\"a1\":null,"
+                + "\"a2\":null,"
+                + "\"a3\":{\"file\":null,\"commit\":" + "{\"oid\":\"sha\"}}"
+                + "},\"errors\":["
+                + "{\"type\":\"NOT_FOUND\",\"path\":[\"a1\"],\"message\":\"Could not resolve to a Repository\"},"
+                + "{\"type\":\"RATE_LIMITED\",\"path\":[\"a2\"],\"message\":\"API rate limit exceeded\"}"
+                + "]}";
+
+        final CompletableFuture<GraphQlBatchResolver.Blob> found = resolver.fetch(PROJECT_A, "owner", "repo", "action.yml", "v1");
+        final CompletableFuture<GraphQlBatchResolver.Blob> missingRepository = resolver.fetch(PROJECT_A, "owner", "missing", "action.yml", "v1");
+        final CompletableFuture<GraphQlBatchResolver.Blob> limited = resolver.fetch(PROJECT_A, "owner", "limited", "action.yml", "v1");
+        final CompletableFuture<GraphQlBatchResolver.Blob> missingFile = resolver.fetch(PROJECT_A, "owner", "repo", "missing.yml", "v1");
+
+        assertEquals(new GraphQlBatchResolver.Blob("text", "sha"), found.get(5, TimeUnit.SECONDS));
+        assertEquals(new GraphQlBatchResolver.Blob(null, null), missingRepository.get(5, TimeUnit.SECONDS));
+        assertEquals(new GraphQlBatchResolver.Blob(null, "sha"), missingFile.get(5, TimeUnit.SECONDS));
+        final ExecutionException error = assertThrows(ExecutionException.class, () -> limited.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("RATE_LIMITED"), error.getCause().getMessage());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void failedRequestFailsTheBatchForTheRestFallback() {
+        responder = request -> null;
+
+        final CompletableFuture<GraphQlBatchResolver.Blob> first = resolver.fetch(PROJECT_A, "owner", "repo-a", "action.yml", "v1");
+        final CompletableFuture<GraphQlBatchResolver.Blob> second = resolver.fetch(PROJECT_A, "owner", "repo-b", "action.yml", "v1");
+
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void responseWithoutDataFailsTheBatch() {
+        responder = request -> "{\"errors\":[{\"message\":\"Bad credentials\"}]}";
+
+        final CompletableFuture<GraphQlBatchResolver.Blob> result = resolver.fetch(PROJECT_A, "owner", "repo", "action.yml", "v1");
+
+        final ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("Bad credentials"), error.getCause().getMessage());
+    }
+
+    @Test
+    void missingAccountCompletesWithNull() throws Exception {
+        final GraphQlBatchResolver withoutAccount = new GraphQlBatchResolver((project, body) -> null, Runnable::run, scheduler);
+
+        assertNull(withoutAccount.fetch(PROJECT_A, "owner", "repo", "action.yml", "v1").get(5, TimeUnit.SECONDS));
+    }
+
+    private static String repository(final String text, final String sha) {
+        return "{\"file\":{\"text\":\"" + text + "\"},\"commit\":{\"oid\":\"" + sha + "\"}}";
+    }
+
+    private static Project project(final String name) {
+        return (Project) Proxy.newProxyInstance(GraphQlBatchResolverTest.class.getClassLoader(), new Class<?>[]{Project.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "getName", "toString" -> name;
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> null;
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.yunabraska.githubworkflow.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActionMetadataStoreTest {
+
+    private static final String SHA = "0123456789abcdef0123456789abcdef01234567";
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("action-metadata-store");
+        file = directory.resolve("actions.bin");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void entriesSurviveARestart() {
+        final ActionMetadataStore store = store();
+        final ActionMetadataStore.Entry tagged = store.put("actions/checkout@v3", "v3", SHA, "\"etag\"", "Wed, 21 Oct 2015 07:28:00 GMT", Map.of("ref", "Branch, tag or SHA", "fetch-depth", "Number of commits"), Map.of());
+        final ActionMetadataStore.Entry pinned = store.put("actions/setup-java@" + SHA, SHA, SHA, null, null, Map.of("java-version", "Version \u00c4\u00d6\u00dc"), Map.of("path", "Java home"));
+
+        final ActionMetadataStore restarted = store();
+
+        assertEquals(2, restarted.size());
+        assertEquals(tagged, restarted.get("actions/checkout@v3").orElseThrow());
+        assertEquals(pinned, restarted.get("actions/setup-java@" + SHA).orElseThrow());
+        assertFalse(tagged.pinned());
+        assertTrue(pinned.pinned());
+        assertEquals("", pinned.etag());
+    }
+
+    @Test
+    void touchKeepsTheMetadataAndUpdatesTheSha() {
+        final ActionMetadataStore store = store();
+        final ActionMetadataStore.Entry entry = store.put("owner/action@main", "main", SHA, null, null, Map.of("a", "b"), Map.of("c", "d"));
+        final String newSha = "fedcba9876543210fedcba9876543210fedcba98";
+
+        store.touch("owner/action@main", entry, newSha);
+
+        final ActionMetadataStore.Entry restored = store().get("owner/action@main").orElseThrow();
+        assertEquals(newSha, restored.sha());
+        assertEquals(entry.inputs(), restored.inputs());
+        assertEquals(entry.outputs(), restored.outputs());
+        assertTrue(restored.fetchedAt() >= entry.fetchedAt());
+    }
+
+    @Test
+    void storeOfAnotherVersionIsDroppedAndReplaced() throws IOException {
+        try (final DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(ActionMetadataStore.MAGIC);
+            out.writeInt(ActionMetadataStore.VERSION - 1);
+            //FORMAT OF THE OLDER VERSION DOESN'T MATTER
+            out.writeInt(1);
+            out.writeInt(-1);
+        }
+        final ActionMetadataStore store = store();
+
+        assertEquals(0, store.size());
+
+        store.put("owner/action@v1", "v1", SHA, null, null, Map.of(), Map.of());
+        try (final DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals(ActionMetadataStore.MAGIC, in.readInt());
+            assertEquals(ActionMetadataStore.VERSION, in.readInt());
+            assertEquals(1, in.readInt());
+        }
+        assertEquals(1, store().size());
+    }
+
+    @Test
+    void corruptStoreIsDropped() throws IOException {
+        try (final DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(ActionMetadataStore.MAGIC);
+            out.writeInt(ActionMetadataStore.VERSION);
+            out.writeInt(3);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+
+        assertEquals(0, store().size());
+    }
+
+    @Test
+    void onlyFullShasArePinned() {
+        assertTrue(ActionMetadataStore.isFullSha(SHA));
+        assertFalse(ActionMetadataStore.isFullSha("v3"));
+        assertFalse(ActionMetadataStore.isFullSha(SHA.substring(1)));
+        assertFalse(ActionMetadataStore.isFullSha(null));
+    }
+
+    /**
+     * Saves synchronously, so the file is written when a call returns.
+     */
+    private ActionMetadataStore store() {
+        return new ActionMetadataStore(file, Runnable::run);
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.yunabraska.githubworkflow.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedCacheTest {
+
+    private final List<String> removals = new ArrayList<>();
+
+    @Test
+    void storesUntilFull() {
+        final BoundedCache<String, String> cache = cache(3, 100);
+
+        assertTrue(cache.put("a", "1"));
+        assertTrue(cache.put("b", "2"));
+        assertTrue(cache.put("c", "3"));
+
+        assertEquals("1", cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(3, cache.size());
+        assertEquals(3, cache.weight());
+        assertEquals(List.of(), removals);
+    }
+
+    @Test
+    void oneOffKeyIsNotAdmittedWhenFull() {
+        final BoundedCache<String, String> cache = cache(2, 100);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        requestTimes(cache, "a", 3);
+        requestTimes(cache, "b", 3);
+
+        assertFalse(cache.put("c", "3"));
+
+        assertNull(cache.get("c"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals(1, cache.rejections());
+        assertEquals(0, cache.evictions());
+        assertEquals(List.of("c=3 REJECTED"), removals);
+    }
+
+    @Test
+    void popularKeyEvictsTheLeastRecentlyUsedEntry() {
+        final BoundedCache<String, String> cache = cache(2, 100);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        requestTimes(cache, "b", 1);
+        requestTimes(cache, "a", 1);
+        //MISSES COUNT AS WELL, E.G. REPEATED COMPLETIONS FOR AN ACTION WHICH IS NOT RESOLVED YET
+        requestTimes(cache, "c", 5);
+
+        assertTrue(cache.put("c", "3"));
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        assertEquals(List.of("b=2 EVICTED"), removals);
+    }
+
+    @Test
+    void weightBoundEvictsUntilTheNewEntryFits() {
+        final BoundedCache<String, String> cache = cache(10, 5);
+        cache.put("a", "xx");
+        cache.put("b", "xx");
+        requestTimes(cache, "a", 1);
+        requestTimes(cache, "b", 1);
+        requestTimes(cache, "c", 5);
+
+        assertTrue(cache.put("c", "xxx"));
+
+        assertNull(cache.get("a"));
+        assertEquals("xx", cache.get("b"));
+        assertEquals(5, cache.weight());
+        assertEquals(List.of("a=xx EVICTED"), removals);
+    }
+
+    @Test
+    void entryHeavierThanTheCacheIsRejected() {
+        final BoundedCache<String, String> cache = cache(10, 5);
+
+        assertFalse(cache.put("a", "xxxxxx"));
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        assertEquals(List.of("a=xxxxxx REJECTED"), removals);
+    }
+
+    @Test
+    void rejectedUpdateKeepsTheOldValue() {
+        final BoundedCache<String, String> cache = cache(10, 5);
+        cache.put("a", "x");
+
+        assertFalse(cache.put("a", "xxxxxx"));
+
+        assertEquals("x", cache.get("a"));
+        assertEquals(1, cache.weight());
+        assertEquals(List.of("a=xxxxxx REJECTED"), removals);
+    }
+
+    @Test
+    void updateOfAPresentKeyNeedsNoAdmission() {
+        final BoundedCache<String, String> cache = cache(2, 100);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        requestTimes(cache, "b", 5);
+
+        assertTrue(cache.put("a", "11"));
+
+        assertEquals("11", cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.weight());
+        assertEquals(List.of(), removals);
+    }
+
+    @Test
+    void putIfAbsentReturnsThePresentValue() {
+        final BoundedCache<String, String> cache = cache(2, 100);
+
+        assertNull(cache.putIfAbsent("a", "1"));
+        assertEquals("1", cache.putIfAbsent("a", "2"));
+
+        assertEquals("1", cache.get("a"));
+    }
+
+    @Test
+    void invalidateReleasesTheWeight() {
+        final BoundedCache<String, String> cache = cache(10, 100);
+        cache.put("owner/a@v1", "xx");
+        cache.put("owner/a@v2", "xxx");
+        cache.put("owner/b@v1", "x");
+
+        cache.invalidate("owner/b@v1");
+        cache.invalidate("missing");
+        assertEquals(5, cache.weight());
+
+        cache.invalidateIf(key -> key.startsWith("owner/a@"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        assertEquals(3, removals.size());
+        assertTrue(removals.stream().allMatch(removal -> removal.endsWith("EXPLICIT")), removals.toString());
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        final BoundedCache<String, String> cache = cache(10, 100);
+        cache.put("a", "1");
+
+        cache.get("a");
+        cache.get("a");
+        assertEquals("default", cache.getOrDefault("b", "default"));
+
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    private BoundedCache<String, String> cache(final int maximumSize, final long maximumWeight) {
+        return new BoundedCache<>("test", maximumSize, maximumWeight, String::length, (key, value, cause) -> removals.add(key + "=" + value + " " + cause));
+    }
+
+    /**
+     * Each request gets its own access time, so the least recently used entry is well-defined.
+     */
+    private static void requestTimes(final BoundedCache<String, String> cache, final String key, final int times) {
+        for (int i = 0; i < times; i++) {
+            final long now = System.nanoTime();
+            while (System.nanoTime() == now) {
+                Thread.onSpinWait();
+            }
+            cache.get(key);
+        }
+    }
+}
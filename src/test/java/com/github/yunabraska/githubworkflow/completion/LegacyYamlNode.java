@@ -0,0 +1,134 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.yaml.snakeyaml.Yaml;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * The object tree {@link YamlNode} was before {@link YamlTree}: one object with a child list per node, built from the SnakeYAML Map / List graph.
+ * Reference behaviour for the tests and baseline for the benchmarks.
+ */
+@SuppressWarnings("unchecked")
+public class LegacyYamlNode {
+    protected final int index;
+    protected final String name;
+    protected final String value;
+    protected final LegacyYamlNode parent;
+    protected final List<LegacyYamlNode> children = new ArrayList<>();
+
+    protected LegacyYamlNode(
+            final String name,
+            final String value,
+            final LegacyYamlNode parent,
+            final int index
+    ) {
+        this.name = name;
+        this.value = value;
+        this.parent = parent;
+        this.index = index;
+    }
+
+    /**
+     * Parses like the plugin did before the shared {@link YamlLoader}: a new {@link Yaml} per parse with the YAML 1.1 resolver.
+     */
+    public static LegacyYamlNode legacyYamlNodeOf(final String text) {
+        final Object loaded = new Yaml().load(text);
+        return legacyYamlNodeOf(loaded);
+    }
+
+    /**
+     * @param loaded Map / List graph, e.g. of {@link YamlLoader#load(String)}
+     */
+    public static LegacyYamlNode legacyYamlNodeOf(final Object loaded) {
+        return legacyYamlNodeOf(null, null, loaded, 0);
+    }
+
+    protected static LegacyYamlNode legacyYamlNodeOf(final LegacyYamlNode parent, final Object key, final Object value, final int index) {
+        if (value instanceof Map) {
+            final LegacyYamlNode currentNode = new LegacyYamlNode(key == null ? null : key.toString(), null, parent, index);
+            currentNode.children.addAll(legacyYamlNodesOf(currentNode, (Map<Object, Object>) value));
+            return currentNode;
+        }
+        if (value instanceof Collection) {
+            final LegacyYamlNode currentNode = new LegacyYamlNode(key == null ? null : key.toString(), null, parent, index);
+            currentNode.children.addAll(legacyYamlNodesOf(currentNode, (Collection<Object>) value));
+            return currentNode;
+        }
+        return new LegacyYamlNode(key == null ? null : key.toString(), value == null ? null : value.toString(), parent, index);
+    }
+
+    private static List<LegacyYamlNode> legacyYamlNodesOf(final LegacyYamlNode parent, final Map<Object, Object> map) {
+        final AtomicInteger index = new AtomicInteger(0);
+        return map.entrySet().stream().map(item -> legacyYamlNodeOf(parent, item.getKey(), item.getValue(), index.getAndIncrement())).collect(Collectors.toList());
+    }
+
+    private static List<LegacyYamlNode> legacyYamlNodesOf(final LegacyYamlNode parent, final Collection<Object> collection) {
+        final AtomicInteger index = new AtomicInteger(0);
+        return collection.stream().filter(Objects::nonNull).map(item -> legacyYamlNodeOf(parent, null, item, index.getAndIncrement())).collect(Collectors.toList());
+    }
+
+    private static List<LegacyYamlNode> filterNodesRecursive(final LegacyYamlNode currentNode, final Predicate<LegacyYamlNode> filter, final List<LegacyYamlNode> resultNodes) {
+        if (filter.test(currentNode)) {
+            resultNodes.add(currentNode);
+        }
+        for (LegacyYamlNode child : currentNode.children) {
+            filterNodesRecursive(child, filter, resultNodes);
+        }
+        return resultNodes;
+    }
+
+    public List<LegacyYamlNode> getAllChildren(final Predicate<LegacyYamlNode> filter) {
+        return filterNodesRecursive(this, filter, new ArrayList<>());
+    }
+
+    public Optional<LegacyYamlNode> getChild(final String childName) {
+        return children.stream().filter(node -> node.name() != null && node.name().equals(childName)).findFirst();
+    }
+
+    public boolean hasName(final String name) {
+        return ofNullable(name()).filter(name::equals).isPresent();
+    }
+
+    public boolean hasParent(final String name) {
+        return ofNullable(parent()).map(LegacyYamlNode::name).filter(name::equals).isPresent();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public LegacyYamlNode parent() {
+        return parent;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public List<LegacyYamlNode> children() {
+        return children;
+    }
+
+    @Override
+    public String toString() {
+        return "LegacyYamlNode{" +
+                "name='" + name + '\'' +
+                ", value='" + value + '\'' +
+                ", children=" + children.size() +
+                '}';
+    }
+}
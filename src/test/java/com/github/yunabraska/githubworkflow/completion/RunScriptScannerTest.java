@@ -0,0 +1,142 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RunScriptScannerTest {
+
+    @Test
+    void echoWithAnyQuotingOfValueAndTarget() {
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan(String.join("\n",
+                "echo \"version=1.2.3\" >> $GITHUB_OUTPUT",
+                "echo 'name=plugin' >> \"$GITHUB_OUTPUT\"",
+                "echo plain=yes >> ${GITHUB_OUTPUT}",
+                "echo -n \"flag=on\" >> \"${GITHUB_ENV}\"",
+                "echo \"ignored=1\" >> build.log",
+                "echo \"no assignment\" >> $GITHUB_OUTPUT"
+        ));
+
+        assertEquals(Map.of("version", "1.2.3", "name", "plugin", "plain", "yes"), result.outputs());
+        assertEquals(Map.of("flag", "on"), result.envs());
+    }
+
+    @Test
+    void echoAfterOtherCommandsOnTheSameLine() {
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan(String.join("\n",
+                "if [ -n \"$TAG\" ]; then echo \"tag=$TAG\" >> $GITHUB_OUTPUT; fi",
+                "test -f gradle.properties && echo \"gradle=true\" >> $GITHUB_ENV",
+                "VERSION=$(cat version.txt); echo \"semver=$VERSION\" >> $GITHUB_OUTPUT"
+        ));
+
+        assertEquals(Map.of("tag", "$TAG", "semver", "$VERSION"), result.outputs());
+        assertEquals(Map.of("gradle", "true"), result.envs());
+    }
+
+    @Test
+    void printfKeepsTheFormatWithoutTrailingNewline() {
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan(String.join("\n",
+                "printf \"sha=%s\\n\" \"$GITHUB_SHA\" >> $GITHUB_OUTPUT",
+                "printf 'java=17' >> \"$GITHUB_ENV\"",
+                "printf -- \"dash=%s\\n\" x >> $GITHUB_OUTPUT"
+        ));
+
+        assertEquals(Map.of("sha", "%s", "dash", "%s"), result.outputs());
+        assertEquals(Map.of("java", "17"), result.envs());
+    }
+
+    @Test
+    void multilineValueWithDelimiter() {
+        //FROM .github/workflows/release.yml
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan(String.join("\n",
+                "echo \"changelog<<EOF\" >> $GITHUB_OUTPUT",
+                "echo \"$CHANGELOG\" >> $GITHUB_OUTPUT",
+                "echo \"second line\" >> $GITHUB_OUTPUT",
+                "echo \"EOF\" >> $GITHUB_OUTPUT",
+                "echo \"after=1\" >> $GITHUB_OUTPUT"
+        ));
+
+        assertEquals(Map.of("changelog", "$CHANGELOG\nsecond line", "after", "1"), result.outputs());
+    }
+
+    @Test
+    void shellHeredoc() {
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan(String.join("\n",
+                "cat <<EOF >> $GITHUB_OUTPUT",
+                "first=1",
+                "second=two words",
+                "EOF",
+                "cat <<-'END' >> \"$GITHUB_ENV\"",
+                "    INDENTED=yes",
+                "    END",
+                "outside=not assigned"
+        ));
+
+        assertEquals(Map.of("first", "1", "second", "two words"), result.outputs());
+        assertEquals(Map.of("INDENTED", "yes"), result.envs());
+    }
+
+    @Test
+    void multilineValueInsideShellHeredoc() {
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan(String.join("\n",
+                "cat << EOF >> $GITHUB_OUTPUT",
+                "notes<<NOTES",
+                "line 1",
+                "line 2",
+                "NOTES",
+                "EOF"
+        ));
+
+        assertEquals(Map.of("notes", "line 1\nline 2"), result.outputs());
+    }
+
+    @Test
+    void commandGroupOverMultipleLines() {
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan(String.join("\n",
+                "{",
+                "  echo \"a=1\"",
+                "  printf \"b=%s\\n\" \"$B\"",
+                "  echo",
+                "} >> \"$GITHUB_ENV\"",
+                "{",
+                "  echo \"unrelated=1\"",
+                "} >> out.txt"
+        ));
+
+        assertEquals(Map.of(), result.outputs());
+        assertEquals(Map.of("a", "1", "b", "%s"), result.envs());
+    }
+
+    @Test
+    void commandGroupOnOneLine() {
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan(
+                "{ echo \"c=3\"; echo \"d=x;y\"; } >> $GITHUB_OUTPUT"
+        );
+
+        assertEquals(Map.of("c", "3", "d", "x;y"), result.outputs());
+    }
+
+    @Test
+    void windowsLineEndings() {
+        final RunScriptScanner.Assignments result = RunScriptScanner.scan("echo \"a=1\" >> $GITHUB_OUTPUT\r\necho \"b=2\" >> $GITHUB_ENV\r\n");
+
+        assertEquals(Map.of("a", "1"), result.outputs());
+        assertEquals(Map.of("b", "2"), result.envs());
+    }
+
+    @Test
+    void scriptsWithoutTargetsAreNotScanned() {
+        assertEquals(new RunScriptScanner.Assignments(Map.of(), Map.of()), RunScriptScanner.scan("./gradlew build"));
+        assertEquals(new RunScriptScanner.Assignments(Map.of(), Map.of()), RunScriptScanner.scan(null));
+    }
+
+    @Test
+    void resultsAreCachedByScript() {
+        final String script = "echo \"cached=" + System.nanoTime() + "\" >> $GITHUB_OUTPUT";
+
+        assertSame(RunScriptScanner.scan(script), RunScriptScanner.scan(new String(script.toCharArray())));
+    }
+}
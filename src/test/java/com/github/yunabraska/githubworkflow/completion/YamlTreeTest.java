@@ -0,0 +1,209 @@
+package com.github.yunabraska.githubworkflow.completion;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the flat {@link YamlTree} behind {@link YamlNode} with the object tree it replaced ({@link LegacyYamlNode}),
+ * both built from the same loader, including the lookup tables of nodes with more than {@link YamlTree#LOOKUP_THRESHOLD} children.
+ */
+class YamlTreeTest {
+
+    private static final String WORKFLOW = String.join("\n",
+            "name: Build",
+            "on:",
+            "  push:",
+            "    branches: [ main, 'release/**' ]",
+            "  workflow_dispatch:",
+            "env:",
+            "  JAVA_VERSION: 17",
+            "  PYTHON_VERSION: 3.10",
+            "  EMPTY:",
+            "  ENABLED: true",
+            "x-defaults: &defaults",
+            "  runs-on: ubuntu-latest",
+            "  timeout-minutes: 10",
+            "x-more: &more",
+            "  timeout-minutes: 5",
+            "  continue-on-error: true",
+            "jobs:",
+            "  build:",
+            "    <<: *defaults",
+            "    timeout-minutes: 30",
+            "    outputs:",
+            "      version: ${{ steps.version.outputs.version }}",
+            "    steps:",
+            "      - uses: actions/checkout@v3",
+            "      -",
+            "      - id: version",
+            "        run: |",
+            "          echo \"version=1.0.0\" >> $GITHUB_OUTPUT",
+            "      - name: Test",
+            "        run: ./gradlew test",
+            "  test:",
+            "    runs-on: windows-latest",
+            "    <<: [ *more, *defaults ]",
+            "    steps:",
+            "      - run: ./gradlew check",
+            "  deploy:",
+            "    needs: [ build ]",
+            "    uses: ./.github/workflows/deploy.yml",
+            "    with:",
+            "      version: ${{ needs.build.outputs.version }}"
+    );
+
+    @Test
+    void treeMatchesTheObjectTree() {
+        assertSameTree(WORKFLOW);
+        assertSameTree(wideWorkflow(40, 30));
+    }
+
+    @Test
+    void childLookupMatchesTheObjectTree() {
+        assertSameLookups(WORKFLOW);
+        assertSameLookups(wideWorkflow(40, 30));
+    }
+
+    @Test
+    void lookupTablesFindEveryChildOfWideNodes() {
+        final YamlNode jobs = parse(wideWorkflow(40, 30)).getChild("jobs").orElseThrow();
+
+        assertTrue(jobs.children().size() > YamlTree.LOOKUP_THRESHOLD);
+        for (int i = 0; i < 40; i++) {
+            final YamlNode job = jobs.getChild("job_" + i).orElseThrow();
+            assertEquals("job_" + i, job.name());
+            assertEquals(i, job.index());
+            assertEquals("Job " + i, job.getChildValue("name"));
+        }
+        //NAMES OF OTHER NODES AND UNKNOWN NAMES ARE MISSES, NOT OTHER CHILDREN
+        assertFalse(jobs.hasChild("steps"));
+        assertFalse(jobs.hasChild("VAR_3"));
+        assertFalse(jobs.hasChild("job_40"));
+        assertFalse(jobs.hasChild(null));
+        assertNull(jobs.getChildValue("unknown"));
+    }
+
+    @Test
+    void sequenceItemsAreFoundByIndexOnly() {
+        final StringBuilder text = new StringBuilder("items:\n");
+        for (int i = 0; i < 20; i++) {
+            text.append("  - name: item_").append(i).append('\n');
+        }
+        final YamlNode items = parse(text.toString()).getChild("items").orElseThrow();
+
+        //SEQUENCE ITEMS HAVE NO NAME
+        assertFalse(items.hasChild(null));
+        assertEquals(20, items.children().size());
+        assertEquals("item_19", items.getChildByIndex(19).map(item -> item.getChildValue("name")).orElseThrow());
+    }
+
+    @Test
+    void concurrentLookupsOnANewTree() throws Exception {
+        final YamlNode root = parse(wideWorkflow(200, 50));
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    final YamlNode jobs = root.getChild("jobs").orElseThrow();
+                    final YamlNode env = root.getChild("env").orElseThrow();
+                    for (int i = 199; i >= 0; i--) {
+                        if (!jobs.getChild("job_" + i).map(YamlNode::index).equals(Optional.of(i))
+                                || (i < 50 && !("value_" + i).equals(env.getChildValue("VAR_" + i)))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertSameTree(final String text) {
+        assertSameNode(legacy(text), parse(text), "");
+    }
+
+    private static void assertSameNode(final LegacyYamlNode expected, final YamlNode actual, final String path) {
+        assertEquals(expected.name(), actual.name(), path);
+        assertEquals(expected.value(), actual.value(), path + " value");
+        assertEquals(expected.index(), actual.index(), path + " index");
+        assertEquals(expected.children().size(), actual.children().size(), path + " children " + actual.children());
+        assertEquals(expected.parent() == null ? null : expected.parent().name(), actual.parent() == null ? null : actual.parent().name(), path + " parent");
+        for (int i = 0; i < expected.children().size(); i++) {
+            assertSameNode(expected.children().get(i), actual.children().get(i), path + "/" + (actual.children().get(i).name() == null ? i : actual.children().get(i).name()));
+        }
+    }
+
+    private static void assertSameLookups(final String text) {
+        final LegacyYamlNode expectedRoot = legacy(text);
+        final YamlNode actualRoot = parse(text);
+        final Set<String> names = new LinkedHashSet<>();
+        expectedRoot.getAllChildren(node -> node.name() != null).forEach(node -> names.add(node.name()));
+        names.add("unknown");
+
+        final List<LegacyYamlNode> expectedNodes = expectedRoot.getAllChildren(node -> true);
+        final List<YamlNode> actualNodes = actualRoot.getAllChildren(node -> true);
+        assertEquals(expectedNodes.size(), actualNodes.size());
+        for (int i = 0; i < expectedNodes.size(); i++) {
+            final LegacyYamlNode expected = expectedNodes.get(i);
+            final YamlNode actual = actualNodes.get(i);
+            for (String name : names) {
+                final Optional<LegacyYamlNode> expectedChild = expected.getChild(name);
+                final Optional<YamlNode> actualChild = actual.getChild(name);
+                assertEquals(expectedChild.isPresent(), actualChild.isPresent(), actual + " child " + name);
+                assertEquals(expectedChild.isPresent(), actual.hasChild(name), actual + " hasChild " + name);
+                assertEquals(expectedChild.map(LegacyYamlNode::index), actualChild.map(YamlNode::index), actual + " child " + name);
+                assertEquals(expectedChild.map(LegacyYamlNode::value).orElse(null), actual.getChildValue(name), actual + " value " + name);
+                assertEquals(expected.hasParent(name), actual.hasParent(name), actual + " parent " + name);
+            }
+        }
+        assertEquals(
+                expectedRoot.getAllChildren(node -> node.hasName("run")).stream().map(LegacyYamlNode::value).toList(),
+                actualRoot.getAllChildren(node -> node.hasName("run")).stream().map(YamlNode::value).toList()
+        );
+    }
+
+    private static String wideWorkflow(final int jobs, final int envs) {
+        final StringBuilder result = new StringBuilder("on: push\nenv:\n");
+        for (int i = 0; i < envs; i++) {
+            result.append("  VAR_").append(i).append(": value_").append(i).append('\n');
+        }
+        result.append("jobs:\n");
+        for (int i = 0; i < jobs; i++) {
+            result.append("  job_").append(i).append(":\n")
+                    .append("    name: Job ").append(i).append('\n')
+                    .append("    runs-on: ubuntu-latest\n")
+                    .append("    steps:\n")
+                    .append("      - id: step_").append(i).append('\n')
+                    .append("        run: echo \"out=").append(i).append("\" >> $GITHUB_OUTPUT\n");
+        }
+        return result.toString();
+    }
+
+    private static YamlNode parse(final String text) {
+        return YamlNode.yamlNodeOf(new StringReader(text));
+    }
+
+    private static LegacyYamlNode legacy(final String text) {
+        return LegacyYamlNode.legacyYamlNodeOf(YamlLoader.load(text));
+    }
+}